@@ -0,0 +1,234 @@
+package de.aethos;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import de.aethos.util.CdsArchive;
+import de.aethos.util.ServerController;
+import de.aethos.util.ServerProcess;
+import de.aethos.util.Summary;
+import de.aethos.util.TimedLog;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Boots the installed server several times per JVM profile and reports min, median and p95 of the startup time Paper
+ * prints, the wall time until that line and the wall time of the whole process including the RCON stop.
+ */
+@Mojo(name = "benchmark")
+public class BenchmarkMojo extends AbstractMojo {
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().serializeSpecialFloatingPointValues().create();
+    private static final List<String> AIKAR_FLAGS = List.of(
+            "-XX:+UseG1GC", "-XX:+ParallelRefProcEnabled", "-XX:MaxGCPauseMillis=200", "-XX:+UnlockExperimentalVMOptions",
+            "-XX:+DisableExplicitGC", "-XX:+AlwaysPreTouch", "-XX:G1NewSizePercent=30", "-XX:G1MaxNewSizePercent=40",
+            "-XX:G1HeapRegionSize=8M", "-XX:G1ReservePercent=20", "-XX:G1HeapWastePercent=5", "-XX:G1MixedGCCountTarget=4",
+            "-XX:InitiatingHeapOccupancyPercent=15", "-XX:G1MixedGCLiveThresholdPercent=90", "-XX:G1RSetUpdatingPauseTimePercent=5",
+            "-XX:SurvivorRatio=32", "-XX:+PerfDisableSharedMem", "-XX:MaxTenuringThreshold=1");
+
+    @Component
+    private MavenProject project;
+    @Parameter(property = "path", defaultValue = "server")
+    private String path;
+    @Parameter(property = "memory", defaultValue = "-Xmx1024M")
+    private String memory;
+    /**
+     * Profiles to compare. Without any, the plain heap setting, Aikar's G1 flags, ZGC and CDS are compared; ZGC is the
+     * generational one where the server's Java has it (21 and later).
+     */
+    @Parameter
+    private List<JvmProfile> profiles;
+    @Parameter(property = "benchmark.boots", defaultValue = "5")
+    private int boots;
+    /**
+     * Unmeasured boots per profile, so world generation, the page cache and CDS recording do not skew the first boot.
+     */
+    @Parameter(property = "benchmark.warmup", defaultValue = "1")
+    private int warmup;
+    @Parameter(property = "benchmark.startupTimeout", defaultValue = "300")
+    private int startupTimeout;
+    @Parameter(property = "benchmark.stopTimeout", defaultValue = "60")
+    private int stopTimeout;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        try {
+            final Path server = Path.of(path);
+            if (!Files.isRegularFile(server.resolve("paper.jar"))) {
+                throw new MojoExecutionException("No server installed at " + server.toAbsolutePath());
+            }
+            final List<ProfileResult> results = new ArrayList<>();
+            try (ServerController controller = new ServerController(server, getLog())) {
+                controller.createDefaultProperties();
+                if (controller.isRunning()) {
+                    throw new MojoExecutionException("A server is already running at " + server.toAbsolutePath() + ", stop it before benchmarking");
+                }
+                controller.setup();
+                for (JvmProfile profile : profiles()) {
+                    getLog().info("Benchmarking " + profile);
+                    final List<Boot> measured = new ArrayList<>();
+                    for (int i = 0; i < warmup + boots; i++) {
+                        final Boot boot = boot(server, controller, profile);
+                        if (i >= warmup) {
+                            measured.add(boot);
+                        }
+                        getLog().info((i < warmup ? "Warmup" : "Boot " + (i - warmup + 1)) + ": " + boot);
+                    }
+                    results.add(ProfileResult.of(profile, measured));
+                }
+            }
+            report(results);
+        } catch (MojoExecutionException e) {
+            throw e;
+        } catch (Exception e) {
+            getLog().error(e);
+            throw new MojoExecutionException(e);
+        }
+    }
+
+    private List<JvmProfile> profiles() {
+        if (profiles != null && !profiles.isEmpty()) {
+            return profiles;
+        }
+        final List<String> aikar = new ArrayList<>(List.of(memory));
+        aikar.addAll(AIKAR_FLAGS);
+        return List.of(
+                new JvmProfile("default", List.of(memory), false),
+                new JvmProfile("aikar", aikar, false),
+                zgc(),
+                new JvmProfile("cds", List.of(memory), true));
+    }
+
+    /**
+     * ZGC is only generational from Java 21 on, behind {@code -XX:+ZGenerational} until Java 23 made it the default.
+     */
+    private JvmProfile zgc() {
+        final int java = javaVersion();
+        if (java >= 23) {
+            return new JvmProfile("zgc-generational", List.of(memory, "-XX:+UseZGC"), false);
+        }
+        if (java >= 21) {
+            return new JvmProfile("zgc-generational", List.of(memory, "-XX:+UseZGC", "-XX:+ZGenerational"), false);
+        }
+        getLog().warn("Java " + java + " has no generational ZGC, benchmarking the single generation one");
+        return new JvmProfile("zgc", List.of(memory, "-XX:+UseZGC"), false);
+    }
+
+    /**
+     * @return the feature version of the {@code java} the server is started with, which need not be the one running Maven
+     */
+    private int javaVersion() {
+        try {
+            final Process process = new ProcessBuilder("java", "-XshowSettings:properties", "-version").redirectErrorStream(true).start();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    final String trimmed = line.trim();
+                    if (trimmed.startsWith("java.specification.version = ")) {
+                        process.destroy();
+                        return Integer.parseInt(trimmed.substring("java.specification.version = ".length()).trim());
+                    }
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            getLog().debug(e);
+        }
+        return Runtime.version().feature();
+    }
+
+    private Boot boot(Path server, ServerController controller, JvmProfile profile) throws IOException, InterruptedException {
+        final List<String> arguments = new ArrayList<>(profile.getArguments());
+        final CdsArchive archive = profile.isCds() ? new CdsArchive(server, profile.getArguments(), getLog()) : null;
+        if (archive != null) {
+            arguments.addAll(archive.arguments());
+        }
+        final ProcessBuilder builder = new ProcessBuilder(ServerProcess.command(arguments, server.resolve("paper.jar"), false))
+                .directory(server.toFile());
+        final long started = System.nanoTime();
+        final ServerProcess process = ServerProcess.start(builder, getLog()::debug);
+        try {
+            final Duration ready = process.awaitReady(Duration.ofSeconds(startupTimeout));
+            controller.stop();
+            if (!process.getProcess().waitFor(stopTimeout, TimeUnit.SECONDS)) {
+                throw new IOException("Server did not stop within " + stopTimeout + " seconds");
+            }
+            final long wall = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            return new Boot(process.getReportedStartup(), ready.toMillis(), wall, process.getProcess().exitValue(), null);
+        } catch (IOException | TimeoutException e) {
+            getLog().warn("Boot failed: " + e.getMessage());
+            return new Boot(Double.NaN, -1, -1, -1, e.getMessage() != null ? e.getMessage() : e.toString());
+        } finally {
+            if (process.getProcess().isAlive()) {
+                process.getProcess().destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private void report(List<ProfileResult> results) throws IOException {
+        final Path target = Path.of(project.getBuild().getDirectory());
+        Files.createDirectories(target);
+        try (Writer writer = Files.newBufferedWriter(target.resolve("aethos-benchmark.json"))) {
+            GSON.toJson(results, writer);
+        }
+        final StringBuilder csv = new StringBuilder("profile,metric,count,min,median,p95,max\n");
+        for (ProfileResult result : results) {
+            csv.append(row(result.name(), "done_s", result.reported()));
+            csv.append(row(result.name(), "ready_ms", result.ready()));
+            csv.append(row(result.name(), "wall_ms", result.wall()));
+        }
+        Files.writeString(target.resolve("aethos-benchmark.csv"), csv);
+        getLog().info(String.format(Locale.ROOT, "%-12s %6s %9s %9s %9s %9s", "profile", "boots", "min", "median", "p95", "failed"));
+        for (ProfileResult result : results) {
+            final Summary ready = result.ready();
+            getLog().info(String.format(Locale.ROOT, "%-12s %6d %8.0fms %8.0fms %8.0fms %9d", result.name(), ready.count(), ready.min(), ready.median(), ready.p95(), result.failed()));
+        }
+        getLog().info("Benchmark report written to " + target.resolve("aethos-benchmark.json"));
+    }
+
+    private static String row(String profile, String metric, Summary summary) {
+        return String.format(Locale.ROOT, "%s,%s,%d,%.3f,%.3f,%.3f,%.3f%n", profile, metric, summary.count(), summary.min(), summary.median(), summary.p95(), summary.max());
+    }
+
+    @Override
+    public Log getLog() {
+        return TimedLog.of(super.getLog());
+    }
+
+    private record Boot(double reported, long readyMillis, long wallMillis, int exitCode, String error) {
+        @Override
+        public String toString() {
+            if (error != null) {
+                return "failed (" + error + ")";
+            }
+            return String.format(Locale.ROOT, "Done %.3fs, ready after %dms, %dms until exit", reported, readyMillis, wallMillis);
+        }
+    }
+
+    private record ProfileResult(String name, List<String> arguments, boolean cds, List<Boot> boots, int failed,
+                                 Summary reported, Summary ready, Summary wall) {
+
+        static ProfileResult of(JvmProfile profile, List<Boot> boots) {
+            final List<Boot> ok = boots.stream().filter(boot -> boot.error() == null).toList();
+            return new ProfileResult(profile.getName(), profile.getArguments(), profile.isCds(), boots, boots.size() - ok.size(),
+                    Summary.of(ok.stream().map(Boot::reported).toList()),
+                    Summary.of(ok.stream().map(boot -> (double) boot.readyMillis()).toList()),
+                    Summary.of(ok.stream().map(boot -> (double) boot.wallMillis()).toList()));
+        }
+    }
+}
@@ -1,7 +1,8 @@
 package de.aethos;
 
+import de.aethos.util.ServerState;
 import de.aethos.util.TimedLog;
-import org.apache.commons.io.FileUtils;
+import de.aethos.util.Trash;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -11,27 +12,101 @@ import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.text.SimpleDateFormat;
-import java.util.Locale;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+/**
+ * Deletes the server or parts of it. Scopes other than {@code ALL} keep {@code paper.jar}, {@code libraries/} and the
+ * plugin jars, so the next install has nothing to download. In fast mode everything is renamed into a trash directory
+ * and deleted in the background; leftovers are purged at the start of the next clean.
+ */
 @Mojo(name = "clean", defaultPhase = LifecyclePhase.CLEAN)
 public class CleanMojo extends AbstractMojo {
 
     @Parameter(property = "path", defaultValue = "server")
     private String path;
+    /**
+     * What to delete: {@code ALL}, {@code WORLDS}, {@code PLUGIN_DATA} (the plugins' data folders) and {@code LOGS}
+     * (logs and crash reports), comma separated.
+     */
+    @Parameter(property = "clean.scopes", defaultValue = "ALL")
+    private List<Scope> scopes;
+    @Parameter(property = "clean.fast", defaultValue = "false")
+    private boolean fast;
 
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
+        final Path server = Path.of(path);
+        final Optional<ProcessHandle> running = ServerState.read(server).flatMap(ServerState::process);
+        if (running.isPresent()) {
+            throw new MojoExecutionException("Server at " + server.toAbsolutePath() + " is running as " + running.get().pid() + ", stop it first");
+        }
+        final Trash trash = new Trash(server, getLog());
         try {
-            FileUtils.deleteDirectory(Path.of(path).toFile());
+            if (!trash.isEmpty()) {
+                getLog().info("Purging leftovers of an earlier clean from " + trash.getDir());
+                trash.purge();
+            }
+            final long started = System.nanoTime();
+            final List<Path> targets = targets(server, scopes);
+            for (Path target : targets) {
+                if (fast) {
+                    trash.move(target);
+                } else {
+                    Trash.delete(target);
+                }
+            }
+            if (fast) {
+                trash.purgeInBackground();
+            }
+            getLog().info("Cleaned " + scopes + " (" + targets.size() + " paths) in " + (System.nanoTime() - started) / 1_000_000 + " ms");
         } catch (IOException e) {
+            getLog().error(e);
             throw new MojoExecutionException(e);
         }
     }
 
+    static List<Path> targets(Path server, List<Scope> scopes) throws IOException {
+        final List<Path> targets = new ArrayList<>();
+        if (scopes.contains(Scope.ALL)) {
+            targets.add(server);
+            return targets;
+        }
+        if (!Files.isDirectory(server)) {
+            return targets;
+        }
+        if (scopes.contains(Scope.WORLDS)) {
+            try (Stream<Path> children = Files.list(server)) {
+                children.filter(child -> Files.isRegularFile(child.resolve("level.dat"))).forEach(targets::add);
+            }
+        }
+        if (scopes.contains(Scope.PLUGIN_DATA) && Files.isDirectory(server.resolve("plugins"))) {
+            try (Stream<Path> children = Files.list(server.resolve("plugins"))) {
+                // dot directories hold Paper's remapped jars, which are no plugin data
+                children.filter(Files::isDirectory)
+                        .filter(child -> !child.getFileName().toString().startsWith("."))
+                        .forEach(targets::add);
+            }
+        }
+        if (scopes.contains(Scope.LOGS)) {
+            targets.add(server.resolve("logs"));
+            targets.add(server.resolve("crash-reports"));
+            targets.add(server.resolve(".aethos").resolve("console.log"));
+        }
+        targets.removeIf(target -> !Files.exists(target));
+        return targets;
+    }
+
     @Override
     public Log getLog() {
-        return new TimedLog(super.getLog(), new SimpleDateFormat("[HH:mm:ss] ", Locale.GERMAN));
+        return TimedLog.of(super.getLog());
+    }
+
+    public enum Scope {
+        ALL, WORLDS, PLUGIN_DATA, LOGS
     }
 }
@@ -1,9 +1,21 @@
 package de.aethos;
 
+import de.aethos.util.ArtifactCache;
+import de.aethos.util.Checksums;
+import de.aethos.util.DownloadScheduler;
+import de.aethos.util.InstallState;
 import de.aethos.util.PaperDownloader;
+import de.aethos.util.PaperclipCache;
+import de.aethos.util.PhaseReport;
 import de.aethos.util.PluginDownloader;
+import de.aethos.util.PluginIndex;
+import de.aethos.util.PluginResolver;
+import de.aethos.util.RepositoryRouter;
+import de.aethos.util.SegmentedDownloader;
 import de.aethos.util.ServerController;
 import de.aethos.util.TimedLog;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Repository;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
@@ -12,51 +24,284 @@ import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.repository.RemoteRepository;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.text.SimpleDateFormat;
-import java.util.Locale;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
 
 @Mojo(name = "install", defaultPhase = LifecyclePhase.VERIFY)
 public class InstallMojo extends AbstractMojo {
 
     @Component
     private MavenProject project;
+    @Component
+    private RepositorySystem repositorySystem;
+    @Parameter(defaultValue = "${repositorySystemSession}", readonly = true)
+    private RepositorySystemSession repositorySession;
+    @Parameter(defaultValue = "${project.remoteProjectRepositories}", readonly = true)
+    private List<RemoteRepository> remoteRepositories;
     @Parameter(property = "paperVersion", required = true)
     private String paperVersion;
+    @Parameter(property = "paperBuild")
+    private String paperBuild;
+    @Parameter(property = "paperTrackLatest", defaultValue = "false")
+    private boolean paperTrackLatest;
+    @Parameter(property = "paperMetadataTtl", defaultValue = "60")
+    private int paperMetadataTtl;
     @Parameter(property = "path", defaultValue = "server")
     private String path;
     @Parameter(property = "dependencies", defaultValue = "true")
     private boolean dependencies;
+    @Parameter(property = "resolver", defaultValue = "true")
+    private boolean resolver;
+    @Parameter(property = "transitive", defaultValue = "false")
+    private boolean transitive;
+    @Parameter(property = "prepatch", defaultValue = "true")
+    private boolean prepatch;
+    @Parameter(property = "checkPluginDependencies", defaultValue = "true")
+    private boolean checkPluginDependencies;
+    @Parameter(property = "failOnMissingPluginDependencies", defaultValue = "false")
+    private boolean failOnMissingPluginDependencies;
+    @Parameter(property = "verify", defaultValue = "false")
+    private boolean verify;
+    @Parameter(property = "downloadThreads", defaultValue = "8")
+    private int downloadThreads;
+    @Parameter(property = "connectionsPerHost", defaultValue = "4")
+    private int connectionsPerHost;
+    @Parameter(property = "downloadSegments", defaultValue = "4")
+    private int downloadSegments;
+    @Parameter(property = "cache", defaultValue = "true")
+    private boolean cache;
+    @Parameter(property = "cacheDirectory", defaultValue = "${user.home}/.aethos/cache")
+    private String cacheDirectory;
+    @Parameter(property = "cacheMaxSize", defaultValue = "2048")
+    private long cacheMaxSize;
+    @Parameter(property = "cacheMaxAge", defaultValue = "30")
+    private int cacheMaxAge;
+    /**
+     * Writes log lines on a background thread, so download threads do not wait for the console.
+     */
+    @Parameter(property = "asyncLog", defaultValue = "false")
+    private boolean asyncLog;
+    /**
+     * Writes phase and artifact timings to {@code target/aethos-install.json}.
+     */
+    @Parameter(property = "report", defaultValue = "true")
+    private boolean report;
 
     @Override
     public void execute() throws MojoExecutionException {
-        final ExecutorService service = Executors.newSingleThreadExecutor();
-
+        final PhaseReport phases = report ? new PhaseReport("install") : PhaseReport.disabled();
         try {
+            install(phases);
+        } finally {
+            // also for up to date and failed installs, whose timings are the interesting ones
+            try {
+                phases.write(Path.of(project.getBuild().getDirectory()).resolve("aethos-install.json"));
+            } catch (IOException e) {
+                getLog().warn("Could not write the install report", e);
+            }
+            if (asyncLog) {
+                TimedLog.asynchronous(super.getLog()).flush();
+            }
+        }
+    }
+
+    @SuppressWarnings("try")
+    private void install(PhaseReport phases) throws MojoExecutionException {
+        final Path server = Path.of(path);
+        final String fingerprint;
+        try (PhaseReport.Timer ignored = phases.phase("up to date check")) {
+            fingerprint = InstallState.fingerprint(inputs());
+            if (!verify && !paperTrackLatest && InstallState.read(server).isUpToDate(server, fingerprint)) {
+                getLog().info("Server installation is up to date");
+                return;
+            }
+        }
+        try (DownloadScheduler scheduler = new DownloadScheduler(downloadThreads, connectionsPerHost, getLog())) {
             setupDirectories();
-            final PaperDownloader paperDownloader = new PaperDownloader(Path.of(path), paperVersion, getLog());
-            final Future<?> paperFuture = service.submit(paperDownloader::download);
+            final ArtifactCache artifactCache = cache ? new ArtifactCache(Path.of(cacheDirectory), getLog()) : ArtifactCache.disabled(getLog());
+            final Checksums checksums = new Checksums(server, getLog());
+            if (verify) {
+                try (PhaseReport.Timer ignored = phases.phase("verify")) {
+                    checksums.verify(Runtime.getRuntime().availableProcessors(), artifactCache);
+                }
+            }
+            final PaperDownloader paperDownloader = new PaperDownloader(server, paperVersion, paperBuild, paperTrackLatest, Duration.ofMinutes(paperMetadataTtl), artifactCache, checksums, new SegmentedDownloader(downloadSegments, getLog()), getLog());
+            paperDownloader.setReport(phases);
+            scheduler.submit("paper.jar", "papermc.io", () -> {
+                paperDownloader.download();
+                return null;
+            });
+            final Map<String, Set<String>> installed = new HashMap<>();
             if (dependencies) {
-                final Path plugins = Path.of(path).resolve("plugins");
-                final PluginDownloader pluginDownloader = new PluginDownloader(plugins, getLog(), project.getDependencies(), project.getRepositories());
-                pluginDownloader.download();
+                final Path plugins = server.resolve("plugins");
+                List<Dependency> pending = project.getDependencies();
+                if (resolver) {
+                    try (PhaseReport.Timer ignored = phases.phase("resolver")) {
+                        final PluginResolver pluginResolver = new PluginResolver(plugins, repositorySystem, repositorySession, remoteRepositories, checksums, getLog());
+                        pending = pluginResolver.resolve(pending, transitive);
+                        installed.putAll(pluginResolver.getInstalled());
+                    }
+                }
+                if (!pending.isEmpty() && repositorySession.isOffline()) {
+                    getLog().warn("Offline, skipping " + pending.size() + " unresolved dependencies");
+                } else if (!pending.isEmpty()) {
+                    final RepositoryRouter router = new RepositoryRouter(cache ? Path.of(cacheDirectory).resolve("routes.properties") : null, getLog());
+                    final PluginDownloader pluginDownloader = new PluginDownloader(plugins, getLog(), pending, project.getRepositories(), artifactCache, router, checksums);
+                    pluginDownloader.setReport(phases);
+                    pluginDownloader.download(scheduler);
+                }
             }
-            ServerController control = new ServerController(Path.of(path), getLog());
-            control.createDefaultProperties();
-            paperFuture.get();
-            service.shutdown();
+            try (PhaseReport.Timer ignored = phases.phase("server.properties")) {
+                ServerController control = new ServerController(server, getLog());
+                control.createDefaultProperties();
+            }
+            try {
+                try (PhaseReport.Timer ignored = phases.phase("downloads")) {
+                    scheduler.await();
+                }
+                boolean patched = true;
+                if (prepatch && cache) {
+                    try (PhaseReport.Timer ignored = phases.phase("prepatch")) {
+                        patched = prepatch(server, checksums);
+                    }
+                }
+                // a failed pre-patch is retried by the next install instead of counting as up to date
+                writeState(patched ? fingerprint : null, installed, checksums);
+            } finally {
+                checksums.save();
+            }
+            if (checkPluginDependencies) {
+                try (PhaseReport.Timer ignored = phases.phase("plugin dependencies")) {
+                    checkPluginDependencies(new PluginIndex(server, getLog()));
+                }
+            }
+            try (PhaseReport.Timer ignored = phases.phase("cache eviction")) {
+                artifactCache.evict(cacheMaxSize * 1024 * 1024, Duration.ofDays(cacheMaxAge));
+            }
+            phases.logSummary(getLog());
+        } catch (MojoExecutionException e) {
+            throw e;
         } catch (Exception e) {
             getLog().error(e);
             throw new MojoExecutionException(e);
         }
     }
 
+    private boolean prepatch(Path server, Checksums checksums) {
+        final Path paperJar = server.resolve("paper.jar");
+        try {
+            final String sha256 = checksums.sha256Of(paperJar);
+            new PaperclipCache(Path.of(cacheDirectory).resolve("paperclip"), getLog()).install(paperJar, sha256, server);
+            return true;
+        } catch (IOException e) {
+            // the server still patches itself on first launch
+            getLog().warn("Could not pre-patch Paper: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void checkPluginDependencies(PluginIndex index) throws IOException, MojoExecutionException {
+        index.refresh();
+        final Map<String, Set<String>> missing = index.missingDependencies();
+        for (Map.Entry<String, Set<String>> entry : missing.entrySet()) {
+            getLog().warn("Plugin " + entry.getKey() + " requires missing plugins: " + String.join(", ", entry.getValue()));
+        }
+        if (!missing.isEmpty() && failOnMissingPluginDependencies) {
+            throw new MojoExecutionException(missing.size() + " plugins have missing dependencies");
+        }
+    }
+
+    /**
+     * Everything that decides what an install produces. Snapshot dependencies can change without changing these, so they are salted with the time.
+     */
+    private List<String> inputs() {
+        final List<String> inputs = new ArrayList<>();
+        inputs.add("paper=" + paperVersion + "/" + paperBuild);
+        inputs.add("dependencies=" + dependencies + "/" + resolver + "/" + transitive);
+        inputs.add("prepatch=" + prepatch + "/" + cache + "/" + cacheDirectory);
+        if (dependencies) {
+            for (Dependency dependency : project.getDependencies()) {
+                inputs.add("dependency=" + dependency.getManagementKey() + ":" + dependency.getVersion() + ":" + dependency.getScope());
+                if (dependency.getVersion().endsWith("-SNAPSHOT")) {
+                    inputs.add("snapshot=" + System.nanoTime());
+                }
+            }
+            for (Repository repository : project.getRepositories()) {
+                inputs.add("repository=" + repository.getUrl());
+            }
+        }
+        return inputs;
+    }
+
+    /**
+     * Records what this install produced and removes plugin jars a previous install placed for dependencies that are gone or changed version.
+     * Ownership of dependencies still declared in the POM is kept even when this install did not handle dependencies.
+     */
+    private void writeState(String fingerprint, Map<String, Set<String>> installed, Checksums checksums) throws IOException {
+        final Path server = Path.of(path);
+        final Path plugins = server.resolve("plugins");
+        final InstallState previous = InstallState.read(server);
+        final InstallState state = new InstallState(fingerprint);
+        final Set<String> declared = new HashSet<>();
+        project.getDependencies().forEach(dependency -> declared.add(PluginResolver.coordinates(dependency)));
+        previous.getPlugins().forEach((coordinates, names) -> {
+            if (declared.contains(coordinates)) {
+                state.getPlugins().put(coordinates, new ArrayList<>(names));
+            }
+        });
+        if (dependencies) {
+            for (Dependency dependency : project.getDependencies()) {
+                final String coordinates = PluginResolver.coordinates(dependency);
+                final Set<String> owned = new TreeSet<>(previous.getPlugins().getOrDefault(coordinates, List.of()));
+                owned.addAll(installed.getOrDefault(coordinates, Set.of()));
+                owned.add(dependency.getArtifactId() + "-" + dependency.getVersion() + ".jar");
+                owned.removeIf(name -> !Files.exists(plugins.resolve(name)));
+                if (!owned.isEmpty()) {
+                    state.getPlugins().put(coordinates, new ArrayList<>(owned));
+                }
+            }
+        }
+        final Set<String> current = new HashSet<>();
+        state.getPlugins().values().forEach(current::addAll);
+        for (List<String> names : previous.getPlugins().values()) {
+            for (String name : names) {
+                final Path jar = plugins.resolve(name);
+                if (!current.contains(name) && Files.deleteIfExists(jar)) {
+                    checksums.remove(jar);
+                    getLog().info("Removed stale plugin " + name);
+                }
+            }
+        }
+        state.record(server, "paper.jar");
+        state.record(server, "eula.txt");
+        state.record(server, "server.properties");
+        for (String name : current) {
+            state.record(server, "plugins/" + name);
+        }
+        if (prepatch && cache && Files.isDirectory(server.resolve("versions"))) {
+            try (Stream<Path> files = Files.walk(server.resolve("versions"))) {
+                for (Path file : files.filter(Files::isRegularFile).toList()) {
+                    state.record(server, server.relativize(file).toString().replace('\\', '/'));
+                }
+            }
+        }
+        state.write(server);
+    }
+
     public void setupDirectories() throws IOException, MojoExecutionException {
         final Path server = Path.of(path);
         if (!Files.exists(server)) {
@@ -80,6 +325,9 @@ public class InstallMojo extends AbstractMojo {
 
     public void acceptEula() throws IOException {
         final Path eulaFile = Path.of(path).resolve("eula.txt");
+        if (Files.exists(eulaFile) && Files.readString(eulaFile).contains("eula=true")) {
+            return;
+        }
         getLog().info("Accepting EULA...");
         Files.write(eulaFile, "eula=true".getBytes());
         getLog().info("EULA accepted");
@@ -87,6 +335,6 @@ public class InstallMojo extends AbstractMojo {
 
     @Override
     public Log getLog() {
-        return new TimedLog(super.getLog(), new SimpleDateFormat("[HH:mm:ss] ", Locale.GERMAN));
+        return asyncLog ? TimedLog.asynchronous(super.getLog()) : TimedLog.of(super.getLog());
     }
 }
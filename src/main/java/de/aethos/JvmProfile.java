@@ -0,0 +1,39 @@
+package de.aethos;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A named set of JVM arguments the benchmark goal boots the server with.
+ */
+public class JvmProfile {
+    private String name;
+    private List<String> arguments = new ArrayList<>();
+    private boolean cds;
+
+    public JvmProfile() {
+    }
+
+    public JvmProfile(String name, List<String> arguments, boolean cds) {
+        this.name = name;
+        this.arguments = arguments;
+        this.cds = cds;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getArguments() {
+        return arguments;
+    }
+
+    public boolean isCds() {
+        return cds;
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + String.join(" ", arguments) + (cds ? " (CDS)" : "");
+    }
+}
@@ -0,0 +1,290 @@
+package de.aethos;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import de.aethos.util.LoadClient;
+import de.aethos.util.ServerController;
+import de.aethos.util.Summary;
+import de.aethos.util.TickSampler;
+import de.aethos.util.TimedLog;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Puts a running server under player load: headless offline mode clients join at a fixed rate, walk around spawn,
+ * chat and run commands, while TPS and MSPT are sampled over RCON. Reports the join latency, the ping round trip of
+ * the clients and the tick times under load. The server must run Minecraft 1.21 or 1.21.1 with online mode off.
+ */
+@Mojo(name = "load-test", defaultPhase = LifecyclePhase.INTEGRATION_TEST)
+public class LoadTestMojo extends AbstractMojo {
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().serializeSpecialFloatingPointValues().create();
+
+    @Component
+    private MavenProject project;
+    @Parameter(property = "path", defaultValue = "server")
+    private String path;
+    @Parameter(property = "loadtest.host", defaultValue = "127.0.0.1")
+    private String host;
+    /**
+     * Game port; the {@code server-port} of {@code server.properties} if not set.
+     */
+    @Parameter(property = "loadtest.port")
+    private Integer port;
+    @Parameter(property = "loadtest.clients", defaultValue = "10")
+    private int clients;
+    /**
+     * Clients joining per second.
+     */
+    @Parameter(property = "loadtest.joinRate", defaultValue = "5")
+    private double joinRate;
+    /**
+     * Seconds from the first join until the clients leave.
+     */
+    @Parameter(property = "loadtest.duration", defaultValue = "60")
+    private int duration;
+    @Parameter(property = "loadtest.namePrefix", defaultValue = "Bot")
+    private String namePrefix;
+    @Parameter(property = "loadtest.viewDistance", defaultValue = "4")
+    private int viewDistance;
+    /**
+     * Lets every client walk around its spawn point at walking speed.
+     */
+    @Parameter(property = "loadtest.walk", defaultValue = "true")
+    private boolean walk;
+    /**
+     * Chat messages the clients send in turn, one per action interval.
+     */
+    @Parameter
+    private List<String> chatMessages;
+    /**
+     * Commands the clients run in turn after the chat messages, one per action interval.
+     */
+    @Parameter
+    private List<String> commands;
+    @Parameter(property = "loadtest.actionInterval", defaultValue = "5000")
+    private long actionInterval;
+    @Parameter(property = "loadtest.connectTimeout", defaultValue = "30")
+    private int connectTimeout;
+    /**
+     * Threads driving walking, pings and actions of all clients; each client also has a thread reading its socket.
+     */
+    @Parameter(property = "loadtest.threads", defaultValue = "4")
+    private int threads;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        final List<LoadClient> created = new ArrayList<>();
+        try {
+            run(created);
+        } finally {
+            // also the clients that failed to join or were still logging in when the test ended
+            created.forEach(LoadClient::close);
+        }
+    }
+
+    private void run(List<LoadClient> created) throws MojoExecutionException, MojoFailureException {
+        final Path server = Path.of(path);
+        final List<LoadClient> joined = new CopyOnWriteArrayList<>();
+        final Queue<Double> connects = new ConcurrentLinkedQueue<>();
+        final Map<String, Integer> failures = new ConcurrentHashMap<>();
+        final List<TickSampler.Sample> samples = new ArrayList<>();
+        try (ServerController controller = new ServerController(server, getLog())) {
+            if (!controller.isRunning()) {
+                throw new MojoExecutionException("No server reachable over RCON at " + server.toAbsolutePath() + ", start it first");
+            }
+            if (Boolean.parseBoolean(controller.readProperty("online-mode", "true"))) {
+                throw new MojoExecutionException("Set online-mode=false in server.properties, the load clients cannot authenticate");
+            }
+            final int gamePort = port != null ? port : Integer.parseInt(controller.readProperty("server-port", "25565"));
+            final ExecutorService connector = Executors.newFixedThreadPool(Math.max(1, Math.min(clients, 32)));
+            final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(Math.max(1, threads));
+            final List<String> script = script();
+            final AtomicInteger action = new AtomicInteger();
+            getLog().info("Joining " + clients + " clients at " + joinRate + "/s to " + host + ":" + gamePort);
+            try {
+                for (int i = 0; i < clients; i++) {
+                    final LoadClient client = new LoadClient(namePrefix + i, viewDistance);
+                    created.add(client);
+                    scheduler.schedule(() -> connector.execute(() -> {
+                        try {
+                            connects.add(client.connect(host, gamePort, Duration.ofSeconds(connectTimeout)).toNanos() / 1e6);
+                            joined.add(client);
+                            drive(scheduler, client, script, action);
+                        } catch (IOException | TimeoutException e) {
+                            final String reason = e instanceof TimeoutException ? "timed out" : String.valueOf(e.getMessage());
+                            failures.merge(reason, 1, Integer::sum);
+                            getLog().debug(client.getName() + " could not join: " + reason);
+                        }
+                    }), (long) (i * 1000 / joinRate), TimeUnit.MILLISECONDS);
+                }
+                final TickSampler sampler = new TickSampler(controller, true);
+                final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(duration);
+                long next = System.nanoTime();
+                while (next < end) {
+                    final TickSampler.Sample sample = sampler.sample();
+                    samples.add(sample);
+                    if (samples.size() % 10 == 0) {
+                        getLog().info(String.format(Locale.ROOT, "%d/%d online, TPS %.2f, MSPT %.2f", online(joined), clients, sample.tps(), sample.msptAverage()));
+                    }
+                    next += TimeUnit.SECONDS.toNanos(1);
+                    TimeUnit.NANOSECONDS.sleep(Math.max(0, next - System.nanoTime()));
+                }
+            } finally {
+                scheduler.shutdownNow();
+                connector.shutdownNow();
+                // a login still running gives up within the connect timeout, after that nothing adds to joined
+                final boolean scheduled = scheduler.awaitTermination(connectTimeout, TimeUnit.SECONDS);
+                final boolean connecting = connector.awaitTermination(connectTimeout, TimeUnit.SECONDS);
+                if (!scheduled || !connecting) {
+                    getLog().warn("Load test threads did not stop within " + connectTimeout + " seconds");
+                }
+            }
+        } catch (IOException e) {
+            getLog().error(e);
+            throw new MojoExecutionException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException(e);
+        }
+        final int online = online(joined);
+        final Map<String, Integer> disconnects = new TreeMap<>();
+        final List<Double> roundTrips = new ArrayList<>();
+        for (LoadClient client : joined) {
+            if (!client.isConnected()) {
+                disconnects.merge(client.getDisconnectReason(), 1, Integer::sum);
+            }
+            roundTrips.addAll(client.getRoundTrips());
+        }
+        try {
+            report(joined.size(), online, new TreeMap<>(failures), disconnects, Summary.of(connects), Summary.of(roundTrips), samples);
+        } catch (IOException e) {
+            getLog().error(e);
+            throw new MojoExecutionException(e);
+        }
+        if (joined.isEmpty()) {
+            throw new MojoFailureException("No client could join: " + failures);
+        }
+    }
+
+    private List<String> script() {
+        final List<String> script = new ArrayList<>();
+        if (chatMessages != null) {
+            script.addAll(chatMessages);
+        }
+        if (commands != null) {
+            commands.stream().map(command -> command.startsWith("/") ? command : "/" + command).forEach(script::add);
+        }
+        return script;
+    }
+
+    private void drive(ScheduledExecutorService scheduler, LoadClient client, List<String> script, AtomicInteger action) {
+        final Random random = new Random(client.getName().hashCode());
+        final float[] yaw = {random.nextFloat() * 360};
+        final long offset = random.nextInt(1000);
+        if (walk) {
+            every(scheduler, client, 0, 50, () -> {
+                yaw[0] += (random.nextFloat() - 0.5f) * 30;
+                client.walk(yaw[0], 0.2);
+            });
+        }
+        every(scheduler, client, offset, 1000, client::ping);
+        if (!script.isEmpty()) {
+            every(scheduler, client, offset, actionInterval, () -> {
+                final String next = script.get(Math.floorMod(action.getAndIncrement(), script.size()));
+                if (next.startsWith("/")) {
+                    client.command(next);
+                } else {
+                    client.chat(next);
+                }
+            });
+        }
+    }
+
+    private static void every(ScheduledExecutorService scheduler, LoadClient client, long delay, long period, ClientAction action) {
+        scheduler.scheduleAtFixedRate(() -> {
+            if (!client.isConnected()) {
+                // throwing is how a periodic task ends itself
+                throw new IllegalStateException(client.getName() + " left");
+            }
+            try {
+                action.run();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }, delay, period, TimeUnit.MILLISECONDS);
+    }
+
+    private static int online(List<LoadClient> joined) {
+        return (int) joined.stream().filter(LoadClient::isConnected).count();
+    }
+
+    private void report(int joined, int online, Map<String, Integer> failures, Map<String, Integer> disconnects, Summary connect, Summary rtt, List<TickSampler.Sample> samples) throws IOException {
+        final Summary tps = Summary.of(samples.stream().map(TickSampler.Sample::tps).toList());
+        final Summary mspt = Summary.of(samples.stream().map(TickSampler.Sample::msptAverage).toList());
+        final Path target = Path.of(project.getBuild().getDirectory());
+        Files.createDirectories(target);
+        final Map<String, Object> report = new LinkedHashMap<>();
+        report.put("protocol", LoadClient.PROTOCOL);
+        report.put("clients", clients);
+        report.put("joined", joined);
+        report.put("online", online);
+        report.put("failures", failures);
+        report.put("disconnects", disconnects);
+        report.put("connectMillis", connect);
+        report.put("roundTripMillis", rtt);
+        report.put("tps", tps);
+        report.put("mspt", mspt);
+        report.put("samples", samples);
+        try (Writer writer = Files.newBufferedWriter(target.resolve("aethos-loadtest.json"))) {
+            GSON.toJson(report, writer);
+        }
+        getLog().info(joined + " of " + clients + " clients joined, " + online + " still online at the end");
+        failures.forEach((reason, count) -> getLog().warn(count + " clients could not join: " + reason));
+        disconnects.forEach((reason, count) -> getLog().warn(count + " clients were disconnected: " + reason));
+        getLog().info(String.format(Locale.ROOT, "%-12s %8s %8s %8s %8s", "", "min", "median", "p95", "max"));
+        for (Map.Entry<String, Summary> row : Map.of("join ms", connect, "rtt ms", rtt, "tps", tps, "mspt", mspt).entrySet().stream().sorted(Map.Entry.comparingByKey()).toList()) {
+            final Summary summary = row.getValue();
+            getLog().info(String.format(Locale.ROOT, "%-12s %8.2f %8.2f %8.2f %8.2f", row.getKey(), summary.min(), summary.median(), summary.p95(), summary.max()));
+        }
+        getLog().info("Load test report written to " + target.resolve("aethos-loadtest.json"));
+    }
+
+    @Override
+    public Log getLog() {
+        return TimedLog.of(super.getLog());
+    }
+
+    private interface ClientAction {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,267 @@
+package de.aethos;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import de.aethos.util.ArtifactCache;
+import de.aethos.util.Checksums;
+import de.aethos.util.DownloadScheduler;
+import de.aethos.util.FreePorts;
+import de.aethos.util.PaperDownloader;
+import de.aethos.util.PaperManifest;
+import de.aethos.util.PaperclipCache;
+import de.aethos.util.PluginDeployer;
+import de.aethos.util.PluginDownloader;
+import de.aethos.util.PluginIndex;
+import de.aethos.util.PluginMetadata;
+import de.aethos.util.PluginResolver;
+import de.aethos.util.RepositoryRouter;
+import de.aethos.util.SegmentedDownloader;
+import de.aethos.util.ServerController;
+import de.aethos.util.ServerProcess;
+import de.aethos.util.TimedLog;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.repository.RemoteRepository;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Certifies the plugin against several Paper versions in one pass. Every version gets its own server below
+ * {@code path}; all are installed concurrently and booted in parallel up to a limit. A version passes if the server
+ * becomes ready, enables the plugin without errors and runs every smoke command.
+ */
+@Mojo(name = "matrix")
+public class MatrixMojo extends AbstractMojo {
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().serializeSpecialFloatingPointValues().create();
+
+    @Component
+    private MavenProject project;
+    @Component
+    private RepositorySystem repositorySystem;
+    @Parameter(defaultValue = "${repositorySystemSession}", readonly = true)
+    private RepositorySystemSession repositorySession;
+    @Parameter(defaultValue = "${project.remoteProjectRepositories}", readonly = true)
+    private List<RemoteRepository> remoteRepositories;
+    @Parameter(property = "matrix.path", defaultValue = "matrix")
+    private String path;
+    @Parameter(property = "matrix.versions", required = true)
+    private List<String> versions;
+    /**
+     * Commands sent over RCON once a server is ready. Defaults to {@code version} and {@code plugins}.
+     */
+    @Parameter
+    private List<String> smokeCommands;
+    /**
+     * Servers booted at the same time.
+     */
+    @Parameter(property = "matrix.parallel", defaultValue = "2")
+    private int parallel;
+    @Parameter(property = "memory", defaultValue = "-Xmx1024M")
+    private String memory;
+    @Parameter(property = "dependencies", defaultValue = "true")
+    private boolean dependencies;
+    @Parameter(property = "cache", defaultValue = "true")
+    private boolean cache;
+    @Parameter(property = "cacheDirectory", defaultValue = "${user.home}/.aethos/cache")
+    private String cacheDirectory;
+    @Parameter(property = "downloadThreads", defaultValue = "8")
+    private int downloadThreads;
+    @Parameter(property = "connectionsPerHost", defaultValue = "4")
+    private int connectionsPerHost;
+    @Parameter(property = "downloadSegments", defaultValue = "4")
+    private int downloadSegments;
+    @Parameter(property = "startupTimeout", defaultValue = "300")
+    private int startupTimeout;
+    @Parameter(property = "stopTimeout", defaultValue = "60")
+    private int stopTimeout;
+    @Parameter(property = "matrix.failOnError", defaultValue = "true")
+    private boolean failOnError;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        final Path root = Path.of(path);
+        final Path jar = Path.of(project.getBuild().getDirectory()).resolve(project.getArtifactId() + "-" + project.getVersion() + ".jar");
+        if (!Files.exists(jar)) {
+            throw new MojoExecutionException("Build the plugin first, " + jar + " does not exist");
+        }
+        final List<Result> results;
+        try {
+            install(root);
+            final Optional<String> plugin = PluginIndex.inspect(jar).map(PluginMetadata::name);
+            final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallel));
+            try {
+                final List<Future<Result>> futures = new ArrayList<>();
+                for (int i = 0; i < versions.size(); i++) {
+                    final String version = versions.get(i);
+                    futures.add(executor.submit(() -> run(version, root.resolve(version), jar, plugin)));
+                }
+                results = new ArrayList<>();
+                for (Future<Result> future : futures) {
+                    results.add(future.get());
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            report(results);
+        } catch (MojoExecutionException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException(e);
+        } catch (IOException | ExecutionException e) {
+            getLog().error(e);
+            throw new MojoExecutionException(e);
+        }
+        final long failed = results.stream().filter(result -> !result.passed()).count();
+        if (failed > 0 && failOnError) {
+            throw new MojoFailureException(failed + " of " + results.size() + " Paper versions failed");
+        }
+    }
+
+    private void install(Path root) throws IOException, MojoExecutionException {
+        final ArtifactCache artifactCache = cache ? new ArtifactCache(Path.of(cacheDirectory), getLog()) : ArtifactCache.disabled(getLog());
+        final SegmentedDownloader downloader = new SegmentedDownloader(downloadSegments, getLog());
+        final RepositoryRouter router = new RepositoryRouter(cache ? Path.of(cacheDirectory).resolve("routes.properties") : null, getLog());
+        try (DownloadScheduler scheduler = new DownloadScheduler(downloadThreads, connectionsPerHost, getLog())) {
+            final List<Checksums> checksums = new ArrayList<>();
+            for (String version : versions) {
+                final Path server = root.resolve(version);
+                Files.createDirectories(server.resolve("plugins"));
+                Files.writeString(server.resolve("eula.txt"), "eula=true");
+                final Checksums serverChecksums = new Checksums(server, getLog());
+                checksums.add(serverChecksums);
+                scheduler.submit("paper " + version, "papermc.io", () -> {
+                    new PaperDownloader(server, version, null, false, Duration.ofMinutes(60), artifactCache, serverChecksums, downloader, getLog()).download();
+                    if (cache) {
+                        final Path paperJar = server.resolve("paper.jar");
+                        new PaperclipCache(Path.of(cacheDirectory).resolve("paperclip"), getLog())
+                                .install(paperJar, serverChecksums.sha256Of(paperJar), server);
+                    }
+                    return null;
+                });
+                if (dependencies) {
+                    final List<Dependency> pending = new PluginResolver(server.resolve("plugins"), repositorySystem, repositorySession, remoteRepositories, serverChecksums, getLog())
+                            .resolve(project.getDependencies(), false);
+                    if (!pending.isEmpty() && repositorySession.isOffline()) {
+                        getLog().warn("Offline, skipping " + pending.size() + " unresolved dependencies for " + version);
+                    } else if (!pending.isEmpty()) {
+                        new PluginDownloader(server.resolve("plugins"), getLog(), pending, project.getRepositories(), artifactCache, router, serverChecksums).download(scheduler);
+                    }
+                }
+            }
+            try {
+                scheduler.await();
+            } finally {
+                for (Checksums serverChecksums : checksums) {
+                    serverChecksums.save();
+                }
+            }
+        }
+    }
+
+    private Result run(String version, Path server, Path jar, Optional<String> plugin) {
+        final String build = PaperManifest.read(server).getBuild();
+        final Queue<String> problems = new ConcurrentLinkedQueue<>();
+        final Queue<String> enabled = new ConcurrentLinkedQueue<>();
+        try (ServerController controller = new ServerController(server, getLog())) {
+            new PluginDeployer(server.resolve("plugins"), false, getLog()).deploy(jar);
+            Files.createDirectories(server.resolve(".aethos"));
+            // picked when this entry launches, not when the matrix starts, and held until right before the server binds them
+            try (FreePorts ports = FreePorts.reserve(2)) {
+                controller.createDefaultProperties();
+                controller.setup(ports.get(1));
+                controller.setProperties(Map.of("server-port", String.valueOf(ports.get(0))));
+            }
+            final ProcessBuilder builder = new ProcessBuilder(ServerProcess.command(List.of(memory), server.resolve("paper.jar"), false)).directory(server.toFile());
+            try (PrintWriter console = new PrintWriter(Files.newBufferedWriter(server.resolve(".aethos").resolve("console.log")), true)) {
+                final ServerProcess process = ServerProcess.start(builder, line -> {
+                    console.println(line);
+                    getLog().debug("[" + version + "] " + line);
+                    if (line.contains("Error occurred while enabling") || line.contains("Could not load '")) {
+                        problems.add(line.strip());
+                    }
+                    if (plugin.isPresent() && line.contains("Enabling " + plugin.get())) {
+                        enabled.add(line);
+                    }
+                });
+                try {
+                    final Duration startup = process.awaitReady(Duration.ofSeconds(startupTimeout));
+                    getLog().info("Paper " + version + " ready after " + startup.toMillis() + " ms");
+                    final List<String> commands = smokeCommands != null && !smokeCommands.isEmpty() ? smokeCommands : List.of("version", "plugins");
+                    final List<String> responses = controller.sendCommands(commands);
+                    for (int i = 0; i < commands.size(); i++) {
+                        if (responses.get(i).contains("Unknown or incomplete command")) {
+                            problems.add("'" + commands.get(i) + "' is unknown");
+                        }
+                    }
+                    if (plugin.isPresent() && enabled.isEmpty()) {
+                        problems.add(plugin.get() + " was not enabled");
+                    }
+                    return new Result(version, build, problems.isEmpty(), startup.toMillis(), process.getReportedStartup(), String.join("; ", problems));
+                } catch (TimeoutException e) {
+                    return new Result(version, build, false, -1, Double.NaN, "not ready within " + startupTimeout + "s");
+                } finally {
+                    controller.shutdown(process.getProcess().toHandle(), Duration.ofSeconds(stopTimeout));
+                }
+            }
+        } catch (IOException e) {
+            return new Result(version, build, false, -1, Double.NaN, e.getMessage() != null ? e.getMessage() : e.toString());
+        }
+    }
+
+    private void report(List<Result> results) throws IOException {
+        final Path target = Path.of(project.getBuild().getDirectory());
+        Files.createDirectories(target);
+        try (Writer writer = Files.newBufferedWriter(target.resolve("aethos-matrix.json"))) {
+            GSON.toJson(results, writer);
+        }
+        final StringBuilder csv = new StringBuilder("version,build,status,ready_ms,done_s,reason\n");
+        getLog().info(String.format(Locale.ROOT, "%-10s %-6s %-6s %9s  %s", "version", "build", "status", "startup", "reason"));
+        for (Result result : results) {
+            final String status = result.passed() ? "PASS" : "FAIL";
+            csv.append(String.format(Locale.ROOT, "%s,%s,%s,%d,%.3f,\"%s\"%n", result.version(), result.build(), status, result.readyMillis(), result.reported(), result.reason().replace("\"", "'")));
+            final String line = String.format(Locale.ROOT, "%-10s %-6s %-6s %7dms  %s", result.version(), result.build(), status, result.readyMillis(), result.reason());
+            if (result.passed()) {
+                getLog().info(line);
+            } else {
+                getLog().error(line);
+            }
+        }
+        Files.writeString(target.resolve("aethos-matrix.csv"), csv);
+        getLog().info("Matrix report written to " + target.resolve("aethos-matrix.json"));
+    }
+
+    @Override
+    public Log getLog() {
+        return TimedLog.of(super.getLog());
+    }
+
+    private record Result(String version, String build, boolean passed, long readyMillis, double reported, String reason) {
+    }
+}
@@ -2,7 +2,11 @@ package de.aethos;
 
 
 import com.google.common.base.Preconditions;
+import de.aethos.util.CdsArchive;
+import de.aethos.util.PhaseReport;
+import de.aethos.util.PluginDeployer;
 import de.aethos.util.ServerController;
+import de.aethos.util.ServerProcess;
 import de.aethos.util.TimedLog;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -13,12 +17,12 @@ import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 
+import java.io.File;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.text.SimpleDateFormat;
-import java.util.Locale;
+import java.util.ArrayList;
+import java.util.List;
 
 @Mojo(name = "minecraft-server", defaultPhase = LifecyclePhase.VERIFY)
 public class MinecraftServerMojo extends AbstractMojo {
@@ -33,56 +37,127 @@ public class MinecraftServerMojo extends AbstractMojo {
     private boolean gui;
     @Parameter(property = "reload", defaultValue = "true")
     private boolean reload;
+    /**
+     * Records a dynamic AppCDS archive on the first clean stop and maps it on later launches.
+     */
+    @Parameter(property = "cds", defaultValue = "false")
+    private boolean cds;
+    /**
+     * Commands sent over RCON once the server is ready, one per line. Blank lines and lines starting with # are skipped.
+     */
+    @Parameter(property = "commandFile")
+    private File commandFile;
+    /**
+     * Writes the launch phase timings to {@code target/aethos-launch.json} once the server is ready.
+     */
+    @Parameter(property = "report", defaultValue = "true")
+    private boolean report;
 
-
+    @SuppressWarnings("try")
     @Override
     public void execute() throws MojoExecutionException {
+        final PhaseReport phases = report ? new PhaseReport("launch") : PhaseReport.disabled();
         try {
             Path path = Path.of(this.path);
             Preconditions.checkArgument(Files.isDirectory(path));
             ServerController controller = new ServerController(path, getLog());
-            movePlugin();
+            final boolean changed;
+            try (PhaseReport.Timer ignored = phases.phase("deploy")) {
+                changed = movePlugin();
+            }
             if (reload && controller.isRunning()) {
-                controller.reload();
+                if (changed) {
+                    controller.reload(pluginJar());
+                }
                 return;
             }
-            controller.setup();
-            ProcessBuilder builder;
-            Path paperJar = path.resolve("paper.jar").toAbsolutePath();
-            if (gui) {
-                builder = new ProcessBuilder("java", memory, "-jar", paperJar.toString());
-            } else {
-                builder = new ProcessBuilder("java", memory, "-jar", paperJar.toString(), "nogui");
+            try (PhaseReport.Timer ignored = phases.phase("rcon setup")) {
+                controller.setup();
             }
-
+            final List<String> arguments = new ArrayList<>(List.of(memory));
+            final CdsArchive archive = cds ? new CdsArchive(path, List.of(memory), getLog()) : null;
+            if (archive != null) {
+                arguments.addAll(archive.arguments());
+            }
+            final boolean archived = archive != null && archive.isArchived();
+            ProcessBuilder builder = new ProcessBuilder(ServerProcess.command(arguments, path.resolve("paper.jar"), gui));
             builder.directory(path.toFile());
-            builder.redirectError(ProcessBuilder.Redirect.INHERIT);
-            builder.redirectOutput(ProcessBuilder.Redirect.INHERIT);
             builder.redirectInput(ProcessBuilder.Redirect.INHERIT);
-            getLog().info("PaperMC server started successfully.");
             Runtime.getRuntime().addShutdownHook(new Thread(controller::stop));
-            builder.start().waitFor();
+            final ServerProcess server;
+            try (PhaseReport.Timer ignored = phases.phase("process start")) {
+                server = ServerProcess.start(builder, System.out::println);
+            }
+            getLog().info("PaperMC server started successfully.");
+            // the console pump completes the future, it has to keep draining stdout while the commands run
+            server.getReady().thenAcceptAsync(startup -> {
+                getLog().info("Server ready after " + startup.toMillis() + " ms (Paper reports " + server.getReportedStartup() + "s)");
+                phases.record(archived ? "startup (cds)" : "startup", startup.toNanos());
+                if (archive != null) {
+                    try {
+                        archive.recordStartup(startup, archived);
+                    } catch (IOException e) {
+                        getLog().warn("Could not record startup time", e);
+                    }
+                }
+                if (commandFile != null) {
+                    try {
+                        final List<String> commands = ServerController.readCommands(commandFile.toPath());
+                        final List<String> responses;
+                        try (PhaseReport.Timer ignored = phases.phase("commands")) {
+                            responses = controller.sendCommands(commands);
+                        }
+                        for (int i = 0; i < commands.size(); i++) {
+                            getLog().debug(commands.get(i) + ": " + responses.get(i));
+                        }
+                    } catch (IOException e) {
+                        getLog().warn("Could not run " + commandFile, e);
+                    }
+                }
+                phases.logSummary(getLog());
+                writeReport(phases);
+            });
+            server.getProcess().waitFor();
+            controller.close();
+            if (archive != null && !archived) {
+                if (archive.isArchived()) {
+                    getLog().info("CDS archive written, the next launch will use it");
+                } else {
+                    getLog().warn("No CDS archive was written, the server did not stop cleanly");
+                }
+            }
         } catch (Exception e) {
             getLog().error(e);
             throw new MojoExecutionException(e);
+        } finally {
+            // also for reloads and failed launches; a launch that got ready rewrites the same report
+            writeReport(phases);
+        }
+    }
+
+    private void writeReport(PhaseReport phases) {
+        try {
+            phases.write(Path.of(project.getBuild().getDirectory()).resolve("aethos-launch.json"));
+        } catch (IOException e) {
+            getLog().warn("Could not write the launch report", e);
         }
     }
 
-    public void movePlugin() throws MojoExecutionException, IOException {
-        final Path plugin = Path.of(project.getBuild().getDirectory()).resolve(project.getArtifactId() + "-" + project.getVersion() + ".jar");
+    public boolean movePlugin() throws MojoExecutionException, IOException {
+        final Path plugin = pluginJar();
         final Path pluginFolder = Path.of(path).resolve("plugins");
-        final Path target = pluginFolder.resolve(plugin.getFileName());
         if (!Files.exists(pluginFolder) || !Files.isDirectory(pluginFolder)) {
             throw new MojoExecutionException("Plugin folder " + pluginFolder.toAbsolutePath() + " does not exist");
         }
+        return new PluginDeployer(pluginFolder, false, getLog()).deploy(plugin);
+    }
 
-        OutputStream outputStream = Files.newOutputStream(target);
-        Files.copy(plugin.toAbsolutePath(), outputStream);
-        getLog().info("Plugin " + plugin + " moved to " + target);
+    private Path pluginJar() {
+        return Path.of(project.getBuild().getDirectory()).resolve(project.getArtifactId() + "-" + project.getVersion() + ".jar");
     }
 
     @Override
     public Log getLog() {
-        return new TimedLog(super.getLog(), new SimpleDateFormat("[HH:mm:ss] ", Locale.GERMAN));
+        return TimedLog.of(super.getLog());
     }
 }
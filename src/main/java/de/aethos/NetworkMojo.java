@@ -0,0 +1,342 @@
+package de.aethos;
+
+import de.aethos.util.ArtifactCache;
+import de.aethos.util.Checksums;
+import de.aethos.util.DownloadScheduler;
+import de.aethos.util.FreePorts;
+import de.aethos.util.PaperDownloader;
+import de.aethos.util.PaperclipCache;
+import de.aethos.util.PluginDeployer;
+import de.aethos.util.PluginDownloader;
+import de.aethos.util.PluginResolver;
+import de.aethos.util.RepositoryRouter;
+import de.aethos.util.SegmentedDownloader;
+import de.aethos.util.ServerController;
+import de.aethos.util.ServerProcess;
+import de.aethos.util.ServerState;
+import de.aethos.util.TimedLog;
+import de.aethos.util.VelocityForwarding;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.repository.RemoteRepository;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+/**
+ * Installs and starts a Velocity proxy with several Paper backends below {@code path}. Paper and Velocity are downloaded
+ * once and linked into every server, game and RCON ports are picked from the free ones and the backends are set up for
+ * modern forwarding with a fresh secret. All servers boot at the same time; the goal returns once every one is ready.
+ */
+@Mojo(name = "network")
+public class NetworkMojo extends AbstractMojo {
+
+    @Component
+    private MavenProject project;
+    @Component
+    private RepositorySystem repositorySystem;
+    @Parameter(defaultValue = "${repositorySystemSession}", readonly = true)
+    private RepositorySystemSession repositorySession;
+    @Parameter(defaultValue = "${project.remoteProjectRepositories}", readonly = true)
+    private List<RemoteRepository> remoteRepositories;
+    @Parameter(property = "network.path", defaultValue = "network")
+    private String path;
+    @Parameter(property = "paperVersion", required = true)
+    private String paperVersion;
+    @Parameter(property = "paperBuild")
+    private String paperBuild;
+    @Parameter(property = "velocityVersion", defaultValue = "3.3.0-SNAPSHOT")
+    private String velocityVersion;
+    @Parameter(property = "velocityBuild")
+    private String velocityBuild;
+    @Parameter(property = "network.backends", defaultValue = "2")
+    private int backends;
+    /**
+     * Port players connect to, 0 picks a free one.
+     */
+    @Parameter(property = "network.proxyPort", defaultValue = "25577")
+    private int proxyPort;
+    @Parameter(property = "network.proxyOnlineMode", defaultValue = "true")
+    private boolean proxyOnlineMode;
+    @Parameter(property = "memory", defaultValue = "-Xmx1024M")
+    private String memory;
+    @Parameter(property = "network.proxyMemory", defaultValue = "-Xmx512M")
+    private String proxyMemory;
+    @Parameter(property = "dependencies", defaultValue = "true")
+    private boolean dependencies;
+    @Parameter(property = "deploy", defaultValue = "true")
+    private boolean deploy;
+    @Parameter(property = "cache", defaultValue = "true")
+    private boolean cache;
+    @Parameter(property = "cacheDirectory", defaultValue = "${user.home}/.aethos/cache")
+    private String cacheDirectory;
+    @Parameter(property = "downloadThreads", defaultValue = "8")
+    private int downloadThreads;
+    @Parameter(property = "connectionsPerHost", defaultValue = "4")
+    private int connectionsPerHost;
+    @Parameter(property = "downloadSegments", defaultValue = "4")
+    private int downloadSegments;
+    @Parameter(property = "startupTimeout", defaultValue = "300")
+    private int startupTimeout;
+    @Parameter(property = "stopTimeout", defaultValue = "60")
+    private int stopTimeout;
+    /**
+     * Keeps the goal running until the servers exit or Maven is interrupted. Without it the goal returns once the
+     * network is ready and stops it when Maven exits.
+     */
+    @Parameter(property = "network.block", defaultValue = "true")
+    private boolean block;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        final Path root = Path.of(path);
+        final Path proxy = root.resolve("proxy");
+        final Map<String, Path> servers = new LinkedHashMap<>();
+        for (int i = 1; i <= backends; i++) {
+            servers.put("backend-" + i, root.resolve("backend-" + i));
+        }
+        try {
+            final long started = System.nanoTime();
+            install(proxy, new ArrayList<>(servers.values()));
+            getLog().info("Network installed in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) + " ms");
+            final List<Member> members;
+            try (FreePorts ports = FreePorts.reserve(servers.size() * 2 + (proxyPort == 0 ? 1 : 0))) {
+                final Map<String, ServerController> controllers = configure(proxy, servers, ports);
+                members = start(proxy, servers, controllers, ports);
+            }
+            if (block) {
+                for (Member member : members) {
+                    member.process().getProcess().waitFor();
+                }
+            }
+        } catch (MojoExecutionException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException(e);
+        } catch (Exception e) {
+            getLog().error(e);
+            throw new MojoExecutionException(e);
+        }
+    }
+
+    private void install(Path proxy, List<Path> servers) throws IOException, MojoExecutionException {
+        final Path first = servers.get(0);
+        for (Path server : Stream.concat(Stream.of(proxy), servers.stream()).toList()) {
+            Files.createDirectories(server.resolve("plugins"));
+        }
+        final ArtifactCache artifactCache = cache ? new ArtifactCache(Path.of(cacheDirectory), getLog()) : ArtifactCache.disabled(getLog());
+        final Checksums proxyChecksums = new Checksums(proxy, getLog());
+        final Checksums checksums = new Checksums(first, getLog());
+        try (DownloadScheduler scheduler = new DownloadScheduler(downloadThreads, connectionsPerHost, getLog())) {
+            final SegmentedDownloader downloader = new SegmentedDownloader(downloadSegments, getLog());
+            final Duration ttl = Duration.ofMinutes(60);
+            scheduler.submit("velocity.jar", "papermc.io", () -> {
+                new PaperDownloader(proxy, "velocity", velocityVersion, velocityBuild, false, ttl, artifactCache, proxyChecksums, downloader, getLog()).download();
+                return null;
+            });
+            scheduler.submit("paper.jar", "papermc.io", () -> {
+                new PaperDownloader(first, paperVersion, paperBuild, false, ttl, artifactCache, checksums, downloader, getLog()).download();
+                return null;
+            });
+            if (dependencies) {
+                final List<Dependency> pending = new PluginResolver(first.resolve("plugins"), repositorySystem, repositorySession, remoteRepositories, checksums, getLog())
+                        .resolve(project.getDependencies(), false);
+                if (!pending.isEmpty() && repositorySession.isOffline()) {
+                    getLog().warn("Offline, skipping " + pending.size() + " unresolved dependencies");
+                } else if (!pending.isEmpty()) {
+                    final RepositoryRouter router = new RepositoryRouter(cache ? Path.of(cacheDirectory).resolve("routes.properties") : null, getLog());
+                    new PluginDownloader(first.resolve("plugins"), getLog(), pending, project.getRepositories(), artifactCache, router, checksums).download(scheduler);
+                }
+            }
+            scheduler.await();
+            final Path paperJar = first.resolve("paper.jar");
+            final String sha256 = checksums.sha256Of(paperJar);
+            for (Path server : servers) {
+                scheduler.submit(server.getFileName().toString(), "local", () -> {
+                    if (server != first) {
+                        share(first, server);
+                    }
+                    Files.writeString(server.resolve("eula.txt"), "eula=true");
+                    if (cache) {
+                        new PaperclipCache(Path.of(cacheDirectory).resolve("paperclip"), getLog()).install(paperJar, sha256, server);
+                    }
+                    return null;
+                });
+            }
+            scheduler.await();
+        } finally {
+            checksums.save();
+            proxyChecksums.save();
+        }
+    }
+
+    /**
+     * Links paper.jar and the plugins of the first backend into another one.
+     */
+    private void share(Path first, Path server) throws IOException {
+        final List<Path> files = new ArrayList<>(List.of(first.resolve("paper.jar")));
+        try (Stream<Path> plugins = Files.list(first.resolve("plugins"))) {
+            plugins.filter(file -> file.getFileName().toString().endsWith(".jar")).forEach(files::add);
+        }
+        for (Path file : files) {
+            final Path target = server.resolve(first.relativize(file).toString());
+            if (!Files.exists(target) || Files.size(target) != Files.size(file)) {
+                Files.deleteIfExists(target);
+                ArtifactCache.link(file, target);
+            }
+        }
+        Files.copy(first.resolve("paper.json"), server.resolve("paper.json"), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Map<String, ServerController> configure(Path proxy, Map<String, Path> servers, FreePorts ports) throws IOException {
+        final String secret = VelocityForwarding.generateSecret();
+        final Map<String, Integer> gamePorts = new LinkedHashMap<>();
+        final Map<String, ServerController> controllers = new LinkedHashMap<>();
+        final Path jar = Path.of(project.getBuild().getDirectory()).resolve(project.getArtifactId() + "-" + project.getVersion() + ".jar");
+        int next = 0;
+        for (Map.Entry<String, Path> server : servers.entrySet()) {
+            final int gamePort = ports.get(next++);
+            final ServerController controller = new ServerController(server.getValue(), getLog());
+            controller.createDefaultProperties();
+            controller.setup(ports.get(next++));
+            controller.setProperties(Map.of("server-port", String.valueOf(gamePort), "online-mode", "false"));
+            VelocityForwarding.configureBackend(server.getValue(), secret, proxyOnlineMode);
+            if (deploy && Files.exists(jar)) {
+                new PluginDeployer(server.getValue().resolve("plugins"), false, getLog()).deploy(jar);
+            }
+            gamePorts.put(server.getKey(), gamePort);
+            controllers.put(server.getKey(), controller);
+        }
+        final int port = proxyPort == 0 ? ports.get(next) : proxyPort;
+        VelocityForwarding.configureProxy(proxy, port, gamePorts, secret, proxyOnlineMode);
+        getLog().info("Proxy listens on port " + port + ", backends on " + gamePorts);
+        return controllers;
+    }
+
+    private List<Member> start(Path proxy, Map<String, Path> servers, Map<String, ServerController> controllers, FreePorts ports) throws IOException, MojoExecutionException {
+        final long started = System.nanoTime();
+        final List<Member> members = new ArrayList<>();
+        // held until now so nothing else takes the configured ports in between
+        ports.close();
+        members.add(launch("proxy", proxy, "velocity.jar", proxyMemory, null));
+        for (Map.Entry<String, Path> server : servers.entrySet()) {
+            members.add(launch(server.getKey(), server.getValue(), "paper.jar", memory, controllers.get(server.getKey())));
+        }
+        stopOnExit(members);
+        try {
+            CompletableFuture.allOf(members.stream().map(member -> member.process().getReady()).toArray(CompletableFuture[]::new))
+                    .get(startupTimeout, TimeUnit.SECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            for (Member member : members) {
+                if (!member.process().getReady().isDone() || member.process().getReady().isCompletedExceptionally()) {
+                    getLog().error(member.name() + " did not become ready, see " + member.dir().resolve(".aethos").resolve("console.log"));
+                }
+            }
+            stop(members);
+            throw new MojoExecutionException("Network did not become ready within " + startupTimeout + " seconds");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stop(members);
+            throw new MojoExecutionException(e);
+        }
+        for (Member member : members) {
+            getLog().info(member.name() + " ready after " + member.process().getReady().join().toMillis() + " ms");
+            // opens the RCON session now, the shutdown hook cannot load its classes once Maven closed the plugin realm
+            if (member.controller() != null && !member.controller().isRunning()) {
+                getLog().warn(member.name() + " does not answer on RCON");
+            }
+        }
+        getLog().info("Network ready after " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) + " ms");
+        return members;
+    }
+
+    private Member launch(String name, Path dir, String jar, String memory, ServerController controller) throws IOException {
+        final ProcessBuilder builder = new ProcessBuilder(ServerProcess.command(List.of(memory), dir.resolve(jar), false)).directory(dir.toFile());
+        Files.createDirectories(dir.resolve(".aethos"));
+        final PrintWriter console = new PrintWriter(Files.newBufferedWriter(dir.resolve(".aethos").resolve("console.log")), true);
+        final ServerProcess process = ServerProcess.start(builder, line -> {
+            console.println(line);
+            getLog().debug("[" + name + "] " + line);
+        });
+        process.getProcess().onExit().thenRun(console::close);
+        if (controller != null) {
+            new ServerState(process.getProcess().toHandle(), "localhost", controller.readPort(), controller.readPassword()).write(dir);
+        } else {
+            new ServerState(process.getProcess().toHandle(), "localhost", 0, null).write(dir);
+        }
+        return new Member(name, dir, process, controller);
+    }
+
+    private void stopOnExit(List<Member> members) {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> stop(members)));
+    }
+
+    /**
+     * Runs in a shutdown hook after Maven may have closed the plugin realm, so it creates no lambdas and touches no
+     * class that is not loaded yet. All members are asked to stop first, then awaited against one deadline.
+     */
+    private void stop(List<Member> members) {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(stopTimeout);
+        for (Member member : members) {
+            final Process process = member.process().getProcess();
+            if (!process.isAlive()) {
+                continue;
+            }
+            if (member.controller() != null) {
+                member.controller().stop();
+            } else {
+                // Velocity has no RCON, it shuts down cleanly on SIGTERM
+                process.destroy();
+            }
+        }
+        for (Member member : members) {
+            final Process process = member.process().getProcess();
+            try {
+                if (!process.waitFor(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    getLog().warn(member.name() + " did not stop within " + stopTimeout + "s, destroying it");
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroyForcibly();
+            }
+        }
+        for (Member member : members) {
+            try {
+                ServerState.delete(member.dir());
+            } catch (IOException ignored) {
+                // the stop goal treats a recorded but dead process as stopped
+            }
+        }
+    }
+
+    @Override
+    public Log getLog() {
+        return TimedLog.of(super.getLog());
+    }
+
+    private record Member(String name, Path dir, ServerProcess process, ServerController controller) {
+    }
+}
@@ -0,0 +1,199 @@
+package de.aethos;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import de.aethos.util.JfrSummary;
+import de.aethos.util.PluginDeployer;
+import de.aethos.util.PluginIndex;
+import de.aethos.util.PluginMetadata;
+import de.aethos.util.ServerController;
+import de.aethos.util.ServerProcess;
+import de.aethos.util.ServerState;
+import de.aethos.util.TimedLog;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs the server under Java Flight Recorder for a while, optionally driving it with RCON commands, stops it and
+ * summarizes the recording: the hottest methods of the plugin, its allocation sites, GC pauses and lock contention.
+ * The recording stays in {@code target/aethos-profile.jfr} for a closer look in JDK Mission Control. It covers the
+ * whole run of the server, but the summary only counts events between the server getting ready and the stop.
+ */
+@Mojo(name = "profile")
+public class ProfileMojo extends AbstractMojo {
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().serializeSpecialFloatingPointValues().create();
+
+    @Component
+    private MavenProject project;
+    @Parameter(property = "path", defaultValue = "server")
+    private String path;
+    @Parameter(property = "memory", defaultValue = "-Xmx1024M")
+    private String memory;
+    /**
+     * JFR settings: {@code default}, {@code profile} or the path of a {@code .jfc} file.
+     */
+    @Parameter(property = "profile.settings", defaultValue = "profile")
+    private String settings;
+    /**
+     * Seconds to record once the server is ready.
+     */
+    @Parameter(property = "profile.duration", defaultValue = "60")
+    private int duration;
+    /**
+     * Commands sent over RCON in a loop while recording, one per line. Blank lines and lines starting with # are skipped.
+     */
+    @Parameter(property = "profile.workload")
+    private File workload;
+    @Parameter(property = "profile.workloadInterval", defaultValue = "1000")
+    private long workloadInterval;
+    /**
+     * Packages counted as plugin code. Defaults to the package of the plugin's main class.
+     */
+    @Parameter
+    private List<String> packages;
+    @Parameter(property = "profile.top", defaultValue = "15")
+    private int top;
+    @Parameter(property = "startupTimeout", defaultValue = "300")
+    private int startupTimeout;
+    @Parameter(property = "stopTimeout", defaultValue = "60")
+    private int stopTimeout;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        final Path server = Path.of(path);
+        if (!Files.isRegularFile(server.resolve("paper.jar"))) {
+            throw new MojoExecutionException("No server installed at " + server.toAbsolutePath());
+        }
+        if (ServerState.read(server).flatMap(ServerState::process).isPresent()) {
+            throw new MojoExecutionException("Server at " + server.toAbsolutePath() + " is already running, stop it before profiling");
+        }
+        final Path target = Path.of(project.getBuild().getDirectory()).toAbsolutePath();
+        final Path recording = target.resolve("aethos-profile.jfr");
+        final Path jar = target.resolve(project.getArtifactId() + "-" + project.getVersion() + ".jar");
+        try (ServerController controller = new ServerController(server, getLog())) {
+            Files.createDirectories(target);
+            Files.deleteIfExists(recording);
+            controller.createDefaultProperties();
+            controller.setup();
+            if (Files.exists(jar)) {
+                Files.createDirectories(server.resolve("plugins"));
+                new PluginDeployer(server.resolve("plugins"), false, getLog()).deploy(jar);
+            }
+            final Instant from;
+            final Instant to;
+            final List<String> arguments = List.of(memory, "-XX:StartFlightRecording=name=aethos,settings=" + settings + ",dumponexit=true,filename=" + recording);
+            final ProcessBuilder builder = new ProcessBuilder(ServerProcess.command(arguments, server.resolve("paper.jar"), false)).directory(server.toFile());
+            Files.createDirectories(server.resolve(".aethos"));
+            try (PrintWriter console = new PrintWriter(Files.newBufferedWriter(server.resolve(".aethos").resolve("console.log")), true)) {
+                final ServerProcess process = ServerProcess.start(builder, line -> {
+                    console.println(line);
+                    getLog().debug(line);
+                });
+                try {
+                    final Duration startup = process.awaitReady(Duration.ofSeconds(startupTimeout));
+                    getLog().info("Server ready after " + startup.toMillis() + " ms, recording for " + duration + " s");
+                    from = Instant.now();
+                    record(controller);
+                    to = Instant.now();
+                } catch (TimeoutException e) {
+                    throw new MojoExecutionException("Server was not ready within " + startupTimeout + " seconds");
+                } finally {
+                    if (!controller.shutdown(process.getProcess().toHandle(), Duration.ofSeconds(stopTimeout))) {
+                        getLog().warn("The server was destroyed, the recording may be incomplete");
+                    }
+                }
+            }
+            if (!Files.exists(recording)) {
+                throw new MojoExecutionException("The server did not write " + recording);
+            }
+            final List<String> packages = packages(jar);
+            final JfrSummary summary = JfrSummary.read(recording, packages, top, from, to);
+            try (Writer writer = Files.newBufferedWriter(target.resolve("aethos-profile.json"))) {
+                GSON.toJson(summary, writer);
+            }
+            log(summary, packages);
+            getLog().info("Profile written to " + target.resolve("aethos-profile.json") + ", recording in " + recording);
+        } catch (IOException e) {
+            getLog().error(e);
+            throw new MojoExecutionException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException(e);
+        }
+    }
+
+    private void record(ServerController controller) throws IOException, InterruptedException {
+        final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(duration);
+        if (workload == null) {
+            TimeUnit.NANOSECONDS.sleep(end - System.nanoTime());
+            return;
+        }
+        final List<String> commands = ServerController.readCommands(workload.toPath());
+        int sent = 0;
+        while (!commands.isEmpty() && System.nanoTime() < end) {
+            controller.execute(commands.get(sent++ % commands.size()));
+            TimeUnit.MILLISECONDS.sleep(Math.min(workloadInterval, Math.max(0, (end - System.nanoTime()) / 1_000_000)));
+        }
+        getLog().info("Sent " + sent + " workload commands");
+    }
+
+    private List<String> packages(Path jar) throws IOException {
+        if (packages != null && !packages.isEmpty()) {
+            return packages;
+        }
+        final List<String> defaults = new ArrayList<>();
+        if (Files.exists(jar)) {
+            PluginIndex.inspect(jar).map(PluginMetadata::main).filter(main -> main.contains("."))
+                    .ifPresent(main -> defaults.add(main.substring(0, main.lastIndexOf('.'))));
+        }
+        if (defaults.isEmpty()) {
+            defaults.add(project.getGroupId());
+        }
+        return defaults;
+    }
+
+    private void log(JfrSummary summary, List<String> packages) {
+        getLog().info(summary.executionSamples() + " CPU samples, plugin packages " + packages);
+        getLog().info("Hottest plugin methods (innermost plugin frame on CPU):");
+        summary.pluginMethods().forEach(entry -> getLog().info(String.format(Locale.ROOT, "  %5.1f%%  %s", entry.percent(), entry.name())));
+        if (summary.pluginMethods().isEmpty()) {
+            getLog().info("  no samples in plugin code");
+        }
+        getLog().info("Plugin allocation sites:");
+        summary.pluginAllocationSites().forEach(entry -> getLog().info(String.format(Locale.ROOT, "  %8.1f MB  %s", entry.value(), entry.name())));
+        if (summary.pluginAllocationSites().isEmpty()) {
+            getLog().info("  no sampled allocations in plugin code");
+        }
+        getLog().info(String.format(Locale.ROOT, "GC: %d pauses %s, %.1f ms total, median %.2f ms, p95 %.2f ms, max %.2f ms",
+                summary.gcPausesMillis().count(), summary.collections(), summary.gcPauseTotalMillis(),
+                summary.gcPausesMillis().median(), summary.gcPausesMillis().p95(), summary.gcPausesMillis().max()));
+        if (!summary.lockContention().isEmpty()) {
+            getLog().info("Lock contention:");
+            summary.lockContention().stream().limit(5).forEach(entry -> getLog().info(String.format(Locale.ROOT, "  %8.1f ms  %5dx  %s", entry.value(), entry.count(), entry.name())));
+        }
+    }
+
+    @Override
+    public Log getLog() {
+        return TimedLog.of(super.getLog());
+    }
+}
@@ -0,0 +1,50 @@
+package de.aethos;
+
+import de.aethos.util.ServerController;
+import de.aethos.util.TimedLog;
+import de.aethos.util.WorldSnapshot;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Resets the server to a snapshot taken by the snapshot goal, copying back only what changed since.
+ */
+@Mojo(name = "restore")
+public class RestoreMojo extends AbstractMojo {
+
+    @Parameter(property = "path", defaultValue = "server")
+    private String path;
+    @Parameter(property = "snapshot.name", defaultValue = "default")
+    private String name;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        final Path server = Path.of(path);
+        final WorldSnapshot snapshot = new WorldSnapshot(server, name, getLog());
+        if (!snapshot.exists()) {
+            throw new MojoExecutionException("No snapshot " + name + " at " + server.toAbsolutePath());
+        }
+        try (ServerController controller = new ServerController(server, getLog())) {
+            if (controller.isRunning()) {
+                throw new MojoExecutionException("Stop the server before restoring, it would overwrite the restored worlds");
+            }
+            final long started = System.nanoTime();
+            snapshot.restore();
+            getLog().info("Restore took " + (System.nanoTime() - started) / 1_000_000 + " ms");
+        } catch (IOException e) {
+            getLog().error(e);
+            throw new MojoExecutionException(e);
+        }
+    }
+
+    @Override
+    public Log getLog() {
+        return TimedLog.of(super.getLog());
+    }
+}
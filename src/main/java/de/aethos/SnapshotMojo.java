@@ -0,0 +1,65 @@
+package de.aethos;
+
+import de.aethos.util.ServerController;
+import de.aethos.util.TimedLog;
+import de.aethos.util.WorldSnapshot;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Captures the worlds and configuration of the server for the restore goal. A running server is flushed to disk with
+ * saving turned off for the duration of the snapshot.
+ */
+@Mojo(name = "snapshot")
+public class SnapshotMojo extends AbstractMojo {
+
+    @Parameter(property = "path", defaultValue = "server")
+    private String path;
+    @Parameter(property = "snapshot.name", defaultValue = "default")
+    private String name;
+    /**
+     * Further files or directories of the server to capture, e.g. {@code plugins/MyPlugin}.
+     */
+    @Parameter
+    private List<String> includes;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        final Path server = Path.of(path);
+        if (!Files.isDirectory(server)) {
+            throw new MojoExecutionException("No server at " + server.toAbsolutePath());
+        }
+        final long started = System.nanoTime();
+        try (ServerController controller = new ServerController(server, getLog())) {
+            final boolean running = controller.isRunning();
+            if (running) {
+                controller.sendCommands(List.of("save-off", "save-all flush"));
+            }
+            try {
+                new WorldSnapshot(server, name, getLog()).create(includes != null ? includes : new ArrayList<>());
+            } finally {
+                if (running) {
+                    controller.sendCommand("save-on");
+                }
+            }
+            getLog().info("Snapshot took " + (System.nanoTime() - started) / 1_000_000 + " ms");
+        } catch (IOException e) {
+            getLog().error(e);
+            throw new MojoExecutionException(e);
+        }
+    }
+
+    @Override
+    public Log getLog() {
+        return TimedLog.of(super.getLog());
+    }
+}
@@ -0,0 +1,140 @@
+package de.aethos;
+
+import de.aethos.util.CdsArchive;
+import de.aethos.util.PluginDeployer;
+import de.aethos.util.ServerController;
+import de.aethos.util.ServerProcess;
+import de.aethos.util.ServerState;
+import de.aethos.util.TimedLog;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Starts the server in the background and returns once it printed its {@code Done} line, so integration tests can run
+ * against it. The console goes to {@code .aethos/console.log}; the process is recorded for the stop goal.
+ */
+@Mojo(name = "start", defaultPhase = LifecyclePhase.PRE_INTEGRATION_TEST)
+public class StartMojo extends AbstractMojo {
+
+    @Component
+    private MavenProject project;
+    @Parameter(property = "path", defaultValue = "server")
+    private String path;
+    @Parameter(property = "memory", defaultValue = "-Xmx1024M")
+    private String memory;
+    @Parameter(property = "cds", defaultValue = "false")
+    private boolean cds;
+    @Parameter(property = "deploy", defaultValue = "true")
+    private boolean deploy;
+    @Parameter(property = "startupTimeout", defaultValue = "300")
+    private int startupTimeout;
+    @Parameter(property = "stopTimeout", defaultValue = "60")
+    private int stopTimeout;
+    /**
+     * Stops the server when Maven exits without having run the stop goal, since its console pipe closes with Maven.
+     */
+    @Parameter(property = "stopOnExit", defaultValue = "true")
+    private boolean stopOnExit;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        final Path server = Path.of(path);
+        if (!Files.isRegularFile(server.resolve("paper.jar"))) {
+            throw new MojoExecutionException("No server installed at " + server.toAbsolutePath());
+        }
+        final Optional<ProcessHandle> running = ServerState.read(server).flatMap(ServerState::process);
+        if (running.isPresent()) {
+            throw new MojoExecutionException("Server at " + server.toAbsolutePath() + " is already running as " + running.get().pid());
+        }
+        try {
+            final ServerController controller = new ServerController(server, getLog());
+            controller.createDefaultProperties();
+            controller.setup();
+            final Path jar = Path.of(project.getBuild().getDirectory()).resolve(project.getArtifactId() + "-" + project.getVersion() + ".jar");
+            if (deploy && Files.exists(jar)) {
+                Files.createDirectories(server.resolve("plugins"));
+                new PluginDeployer(server.resolve("plugins"), false, getLog()).deploy(jar);
+            }
+            final List<String> arguments = new ArrayList<>(List.of(memory));
+            if (cds) {
+                arguments.addAll(new CdsArchive(server, List.of(memory), getLog()).arguments());
+            }
+            final ProcessBuilder builder = new ProcessBuilder(ServerProcess.command(arguments, server.resolve("paper.jar"), false))
+                    .directory(server.toFile());
+            Files.createDirectories(server.resolve(".aethos"));
+            final Path consoleLog = server.resolve(".aethos").resolve("console.log");
+            final PrintWriter console = new PrintWriter(Files.newBufferedWriter(consoleLog), true);
+            final ServerProcess process = ServerProcess.start(builder, line -> {
+                console.println(line);
+                getLog().debug(line);
+            });
+            process.getProcess().onExit().thenRun(console::close);
+            final ServerState state = new ServerState(process.getProcess().toHandle(), "localhost", controller.readPort(), controller.readPassword());
+            state.write(server);
+            final Duration startup;
+            try {
+                startup = process.awaitReady(Duration.ofSeconds(startupTimeout));
+            } catch (TimeoutException e) {
+                controller.shutdown(process.getProcess().toHandle(), Duration.ofSeconds(stopTimeout));
+                ServerState.delete(server);
+                throw new MojoExecutionException("Server was not ready within " + startupTimeout + " seconds, see " + consoleLog);
+            } catch (IOException e) {
+                ServerState.delete(server);
+                throw new MojoExecutionException("Server exited with " + process.getProcess().waitFor() + " before it was ready, see " + consoleLog);
+            }
+            state.setStartupMillis(startup.toMillis());
+            state.write(server);
+            getLog().info("Server " + state.getPid() + " ready after " + startup.toMillis() + " ms, RCON on port " + state.getRconPort());
+            if (stopOnExit) {
+                stopOnExit(server, controller, process.getProcess().toHandle());
+            }
+        } catch (IOException e) {
+            getLog().error(e);
+            throw new MojoExecutionException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException(e);
+        }
+    }
+
+    private void stopOnExit(Path server, ServerController controller, ProcessHandle process) {
+        // Maven closes the plugin's class realm before shutdown hooks run, so the hook must not load any class: the
+        // RCON session is opened now and the state file is only checked for existence
+        if (!controller.isRunning()) {
+            getLog().warn("RCON is not reachable, the server will be destroyed instead of stopped on exit");
+        }
+        final Path stateFile = ServerState.file(server);
+        final Duration deadline = Duration.ofSeconds(stopTimeout);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (process.isAlive() && Files.exists(stateFile)) {
+                controller.shutdown(process, deadline);
+                try {
+                    Files.deleteIfExists(stateFile);
+                } catch (IOException ignored) {
+                    // the stop goal treats a recorded but dead process as stopped
+                }
+            }
+        }));
+    }
+
+    @Override
+    public Log getLog() {
+        return TimedLog.of(super.getLog());
+    }
+}
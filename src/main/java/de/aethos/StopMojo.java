@@ -0,0 +1,60 @@
+package de.aethos;
+
+import de.aethos.util.ServerController;
+import de.aethos.util.ServerState;
+import de.aethos.util.TimedLog;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Stops the server recorded by the start goal over RCON, destroying it if it does not exit within the deadline.
+ */
+@Mojo(name = "stop", defaultPhase = LifecyclePhase.POST_INTEGRATION_TEST)
+public class StopMojo extends AbstractMojo {
+
+    @Parameter(property = "path", defaultValue = "server")
+    private String path;
+    @Parameter(property = "stopTimeout", defaultValue = "60")
+    private int stopTimeout;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        final Path server = Path.of(path);
+        final Optional<ServerState> state = ServerState.read(server);
+        if (state.isEmpty()) {
+            getLog().info("No background server recorded at " + server.toAbsolutePath());
+            return;
+        }
+        try (ServerController controller = new ServerController(server, getLog())) {
+            final Optional<ProcessHandle> process = state.get().process();
+            if (process.isPresent()) {
+                final long started = System.nanoTime();
+                if (controller.shutdown(process.get(), Duration.ofSeconds(stopTimeout))) {
+                    getLog().info("Server " + state.get().getPid() + " stopped after " + (System.nanoTime() - started) / 1_000_000 + " ms");
+                } else {
+                    getLog().warn("Server " + state.get().getPid() + " was destroyed");
+                }
+            } else {
+                getLog().info("Server " + state.get().getPid() + " is not running anymore");
+            }
+            ServerState.delete(server);
+        } catch (IOException e) {
+            getLog().error(e);
+            throw new MojoExecutionException(e);
+        }
+    }
+
+    @Override
+    public Log getLog() {
+        return TimedLog.of(super.getLog());
+    }
+}
@@ -0,0 +1,152 @@
+package de.aethos;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import de.aethos.util.ServerController;
+import de.aethos.util.Summary;
+import de.aethos.util.TickSampler;
+import de.aethos.util.TimedLog;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples TPS, MSPT and the entity and chunk totals of a running server, e.g. one launched by the start goal, and fails
+ * the build when the 95th percentile of the tick time or the lowest TPS cross the configured limits.
+ */
+@Mojo(name = "telemetry", defaultPhase = LifecyclePhase.INTEGRATION_TEST)
+public class TelemetryMojo extends AbstractMojo {
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().serializeSpecialFloatingPointValues().create();
+
+    @Component
+    private MavenProject project;
+    @Parameter(property = "path", defaultValue = "server")
+    private String path;
+    /**
+     * Milliseconds between two samples.
+     */
+    @Parameter(property = "telemetry.interval", defaultValue = "1000")
+    private long interval;
+    /**
+     * Seconds to sample for.
+     */
+    @Parameter(property = "telemetry.duration", defaultValue = "60")
+    private int duration;
+    /**
+     * Seconds at the start whose samples are reported but not checked, while the server still loads spawn chunks.
+     */
+    @Parameter(property = "telemetry.warmup", defaultValue = "5")
+    private int warmup;
+    /**
+     * Also samples {@code paper entity list} and {@code paper chunkinfo}.
+     */
+    @Parameter(property = "telemetry.counts", defaultValue = "true")
+    private boolean counts;
+    /**
+     * Highest allowed 95th percentile of the average tick time in milliseconds; unchecked if not set.
+     */
+    @Parameter(property = "telemetry.maxMspt")
+    private Double maxMspt;
+    /**
+     * Lowest allowed TPS; unchecked if not set.
+     */
+    @Parameter(property = "telemetry.minTps")
+    private Double minTps;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        final Path server = Path.of(path);
+        final List<TickSampler.Sample> samples = new ArrayList<>();
+        try (ServerController controller = new ServerController(server, getLog())) {
+            if (!controller.isRunning()) {
+                throw new MojoExecutionException("No server reachable over RCON at " + server.toAbsolutePath() + ", run the start goal first");
+            }
+            final TickSampler sampler = new TickSampler(controller, counts);
+            getLog().info("Sampling every " + interval + " ms for " + duration + " s");
+            final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(duration);
+            long next = System.nanoTime();
+            while (next < end) {
+                samples.add(sampler.sample());
+                next += TimeUnit.MILLISECONDS.toNanos(interval);
+                TimeUnit.NANOSECONDS.sleep(Math.max(0, next - System.nanoTime()));
+            }
+        } catch (IOException e) {
+            getLog().error(e);
+            throw new MojoExecutionException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException(e);
+        }
+        final List<TickSampler.Sample> checked = samples.stream().filter(sample -> sample.elapsedMillis() >= warmup * 1000L).toList();
+        final Summary tps = Summary.of(checked.stream().map(TickSampler.Sample::tps).toList());
+        final Summary mspt = Summary.of(checked.stream().map(TickSampler.Sample::msptAverage).toList());
+        final List<String> violations = new ArrayList<>();
+        if (maxMspt != null && mspt.count() > 0 && mspt.p95() > maxMspt) {
+            violations.add(String.format(Locale.ROOT, "p95 MSPT %.2f exceeds %.2f", mspt.p95(), maxMspt));
+        }
+        if (minTps != null && tps.count() > 0 && tps.min() < minTps) {
+            violations.add(String.format(Locale.ROOT, "minimum TPS %.2f is below %.2f", tps.min(), minTps));
+        }
+        try {
+            report(samples, tps, mspt, violations);
+        } catch (IOException e) {
+            getLog().error(e);
+            throw new MojoExecutionException(e);
+        }
+        if (!violations.isEmpty()) {
+            throw new MojoFailureException("Tick performance regressed: " + String.join(", ", violations));
+        }
+    }
+
+    private void report(List<TickSampler.Sample> samples, Summary tps, Summary mspt, List<String> violations) throws IOException {
+        final Path target = Path.of(project.getBuild().getDirectory());
+        Files.createDirectories(target);
+        final StringBuilder csv = new StringBuilder("elapsed_ms,tps,mspt_avg,mspt_min,mspt_max,entities,chunks\n");
+        for (TickSampler.Sample sample : samples) {
+            csv.append(String.format(Locale.ROOT, "%d,%.2f,%.2f,%.2f,%.2f,%d,%d%n", sample.elapsedMillis(), sample.tps(),
+                    sample.msptAverage(), sample.msptMin(), sample.msptMax(), sample.entities(), sample.chunks()));
+        }
+        Files.writeString(target.resolve("aethos-telemetry.csv"), csv);
+        final Map<String, Object> report = new LinkedHashMap<>();
+        report.put("intervalMillis", interval);
+        report.put("warmupSeconds", warmup);
+        report.put("tps", tps);
+        report.put("mspt", mspt);
+        report.put("maxMspt", maxMspt);
+        report.put("minTps", minTps);
+        report.put("violations", violations);
+        report.put("samples", samples);
+        try (Writer writer = Files.newBufferedWriter(target.resolve("aethos-telemetry.json"))) {
+            GSON.toJson(report, writer);
+        }
+        getLog().info(String.format(Locale.ROOT, "%d samples, TPS min %.2f median %.2f, MSPT median %.2f p95 %.2f max %.2f",
+                samples.size(), tps.min(), tps.median(), mspt.median(), mspt.p95(), mspt.max()));
+        if (!samples.isEmpty() && samples.get(samples.size() - 1).entities() >= 0) {
+            final TickSampler.Sample last = samples.get(samples.size() - 1);
+            getLog().info("Last sample: " + last.entities() + " entities, " + last.chunks() + " chunks");
+        }
+        getLog().info("Telemetry written to " + target.resolve("aethos-telemetry.csv"));
+    }
+
+    @Override
+    public Log getLog() {
+        return TimedLog.of(super.getLog());
+    }
+}
@@ -0,0 +1,136 @@
+package de.aethos;
+
+import de.aethos.util.PluginDeployer;
+import de.aethos.util.PluginIndex;
+import de.aethos.util.ServerController;
+import de.aethos.util.TimedLog;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches {@code target/} for rebuilds of the plugin jar and redeploys it into the server. Bursts of file events are
+ * debounced, unchanged jars are skipped by digest and only the rebuilt plugin is reloaded when PlugMan is installed.
+ */
+@Mojo(name = "watch")
+public class WatchMojo extends AbstractMojo {
+
+    @Component
+    private MavenProject project;
+    @Parameter(property = "path", defaultValue = "server")
+    private String path;
+    /**
+     * Links the jar in {@code target/} into {@code plugins/} instead of copying it.
+     */
+    @Parameter(property = "watch.symlink", defaultValue = "false")
+    private boolean symlink;
+    /**
+     * Milliseconds without file events before a rebuild counts as finished.
+     */
+    @Parameter(property = "watch.debounce", defaultValue = "300")
+    private long debounce;
+    @Parameter(property = "reload", defaultValue = "true")
+    private boolean reload;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        final Path server = Path.of(path);
+        final Path plugins = server.resolve("plugins");
+        if (!Files.isDirectory(plugins)) {
+            throw new MojoExecutionException("Plugin folder " + plugins.toAbsolutePath() + " does not exist");
+        }
+        final Path target = Path.of(project.getBuild().getDirectory());
+        final Path jar = target.resolve(project.getArtifactId() + "-" + project.getVersion() + ".jar");
+        final PluginDeployer deployer = new PluginDeployer(plugins, symlink, getLog());
+        final ServerController controller = new ServerController(server, getLog());
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            if (Files.exists(jar)) {
+                deploy(deployer, controller, jar);
+            }
+            getLog().info("Watching " + jar + ", press Ctrl+C to stop");
+            while (true) {
+                final WatchKey key = register(watcher, target);
+                if (!awaitChange(watcher, key, jar)) {
+                    continue;
+                }
+                if (Files.exists(jar)) {
+                    deploy(deployer, controller, jar);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            getLog().error(e);
+            throw new MojoExecutionException(e);
+        }
+    }
+
+    private WatchKey register(WatchService watcher, Path target) throws IOException, InterruptedException {
+        // mvn clean deletes target/ and with it the watch registration
+        while (!Files.isDirectory(target)) {
+            TimeUnit.MILLISECONDS.sleep(debounce);
+        }
+        return target.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    /**
+     * Blocks until the jar was touched and no further events arrived for the debounce period.
+     *
+     * @return false if the registration became invalid and has to be renewed
+     */
+    private boolean awaitChange(WatchService watcher, WatchKey key, Path jar) throws InterruptedException {
+        boolean touched = false;
+        WatchKey next = watcher.take();
+        while (next != null) {
+            for (WatchEvent<?> event : next.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW || jar.getFileName().equals(event.context())) {
+                    touched = true;
+                }
+            }
+            if (!next.reset()) {
+                return false;
+            }
+            next = touched ? watcher.poll(debounce, TimeUnit.MILLISECONDS) : watcher.take();
+        }
+        return key.isValid();
+    }
+
+    private void deploy(PluginDeployer deployer, ServerController controller, Path jar) {
+        final long started = System.nanoTime();
+        try {
+            if (PluginIndex.inspect(jar).isEmpty()) {
+                getLog().warn(jar.getFileName() + " has no plugin.yml, skipping deploy");
+                return;
+            }
+            if (!deployer.deploy(jar)) {
+                return;
+            }
+            if (reload && controller.isRunning()) {
+                controller.reload(jar);
+            }
+            getLog().info("Redeployed in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) + " ms");
+        } catch (IOException e) {
+            // a jar still being written is not a valid zip yet, the next event retries
+            getLog().warn("Could not deploy " + jar.getFileName() + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public Log getLog() {
+        return TimedLog.of(super.getLog());
+    }
+}
@@ -0,0 +1,317 @@
+package de.aethos.util;
+
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * User-level store for downloaded jars, shared by every server directory on the machine.
+ * Blobs are addressed by their SHA-256 digest, keys (e.g. {@code plugin/group:artifact:version}) only point to a digest.
+ * Blobs are hardlinked into server directories, so their metadata is never touched after storing: the last use of a
+ * blob is the modification time of its newest key file.
+ */
+public class ArtifactCache {
+    private static final Object MONITOR = new Object();
+    private final Path dir;
+    private final Log log;
+    private final boolean enabled;
+
+    public ArtifactCache(Path dir, Log log) {
+        this(dir, log, true);
+    }
+
+    private ArtifactCache(Path dir, Log log, boolean enabled) {
+        this.dir = dir;
+        this.log = log;
+        this.enabled = enabled;
+    }
+
+    public static ArtifactCache disabled(Log log) {
+        return new ArtifactCache(null, log, false);
+    }
+
+    public static Path defaultDirectory() {
+        return Path.of(System.getProperty("user.home"), ".aethos", "cache");
+    }
+
+    /**
+     * Hardlinks {@code source} to {@code target}, copying when the two paths do not share a file system.
+     */
+    public static void link(Path source, Path target) throws IOException {
+        Files.deleteIfExists(target);
+        try {
+            Files.createLink(target, source);
+        } catch (UnsupportedOperationException | IOException e) {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    public Optional<Path> lookup(String key) {
+        if (!enabled || key == null) {
+            return Optional.empty();
+        }
+        try {
+            final Path keyFile = keyFile(key);
+            if (!Files.exists(keyFile)) {
+                return Optional.empty();
+            }
+            final Path blob = blob(Files.readAllLines(keyFile).get(0).trim());
+            if (!Files.exists(blob)) {
+                return Optional.empty();
+            }
+            Files.setLastModifiedTime(keyFile, FileTime.from(Instant.now()));
+            return Optional.of(blob);
+        } catch (IOException | IndexOutOfBoundsException e) {
+            getLog().debug(e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return the SHA-256 of the installed blob, empty on a cache miss
+     */
+    public Optional<String> install(String key, Path target) {
+        final Optional<Path> blob = lookup(key);
+        if (blob.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            link(blob.get(), target);
+            getLog().info("Installed " + target.getFileName() + " from cache");
+            return Optional.of(blob.get().getFileName().toString());
+        } catch (IOException e) {
+            // evicted by a concurrent build between lookup and link
+            getLog().debug(e);
+            return Optional.empty();
+        }
+    }
+
+    public void store(String key, Path file) {
+        if (!enabled || key == null) {
+            return;
+        }
+        try {
+            store(key, file, Checksums.sha256(file));
+        } catch (IOException e) {
+            getLog().warn("Could not store " + file.getFileName() + " in artifact cache", e);
+        }
+    }
+
+    /**
+     * Stores {@code file} under its already known SHA-256, avoiding a second read of the file.
+     */
+    public void store(String key, Path file, String digest) {
+        if (!enabled || key == null) {
+            return;
+        }
+        try {
+            locked(() -> {
+                final Path blob = blob(digest);
+                if (!Files.exists(blob)) {
+                    Files.createDirectories(blob.getParent());
+                    final Path temp = blob.resolveSibling(digest + ".tmp");
+                    // a copy, not a link: the downloaded file becomes the server's jar and may be written later
+                    Files.copy(file, temp, StandardCopyOption.REPLACE_EXISTING);
+                    readOnly(temp);
+                    Files.move(temp, blob, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                }
+                final Path keyFile = keyFile(key);
+                final Path temp = keyFile.resolveSibling(keyFile.getFileName() + ".tmp");
+                Files.createDirectories(keyFile.getParent());
+                Files.writeString(temp, digest + "\n" + key + "\n", StandardCharsets.UTF_8);
+                Files.move(temp, keyFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            });
+        } catch (IOException e) {
+            getLog().warn("Could not store " + file.getFileName() + " in artifact cache", e);
+        }
+    }
+
+    /**
+     * Removes the blob stored under {@code digest} together with the keys pointing to it when its content no longer
+     * matches the digest, so that the next install downloads the artifact again instead of relinking the corrupt blob.
+     */
+    public void evictCorrupt(String digest) {
+        if (!enabled || digest == null) {
+            return;
+        }
+        try {
+            locked(() -> {
+                final Path blob = blob(digest);
+                if (Files.exists(blob) && !Checksums.sha256(blob).equals(digest)) {
+                    Files.delete(blob);
+                    pruneKeys();
+                    getLog().warn("Evicted corrupt " + digest + " from cache");
+                }
+            });
+        } catch (IOException e) {
+            getLog().warn("Could not evict " + digest + " from artifact cache", e);
+        }
+    }
+
+    /**
+     * Removes blobs and pre-patched Paper trees that have not been used for {@code maxAge}, then the least recently used
+     * ones until the cache fits into {@code maxBytes}.
+     */
+    public void evict(long maxBytes, Duration maxAge) {
+        if (!enabled || !Files.isDirectory(dir)) {
+            return;
+        }
+        try {
+            locked(() -> {
+                final List<Entry> entries = new ArrayList<>();
+                if (Files.isDirectory(dir.resolve("blobs"))) {
+                    final Map<String, FileTime> used = lastUsed();
+                    try (Stream<Path> stream = Files.walk(dir.resolve("blobs"))) {
+                        for (Path blob : stream.filter(Files::isRegularFile).toList()) {
+                            entries.add(new Entry(blob, Files.size(blob), lastUse(blob, used), false));
+                        }
+                    }
+                }
+                for (Path tree : PaperclipCache.trees(dir.resolve("paperclip"))) {
+                    entries.add(new Entry(tree, PaperclipCache.size(tree), lastModified(tree), true));
+                }
+                entries.sort(Comparator.comparing(Entry::used));
+                final Instant cutoff = Instant.now().minus(maxAge);
+                long total = entries.stream().mapToLong(Entry::size).sum();
+                int removed = 0;
+                for (Entry entry : entries) {
+                    if (total <= maxBytes && entry.used().toInstant().isAfter(cutoff)) {
+                        break;
+                    }
+                    total -= entry.size();
+                    if (entry.tree()) {
+                        PaperclipCache.remove(entry.path());
+                    } else {
+                        Files.delete(entry.path());
+                    }
+                    removed++;
+                }
+                if (removed > 0) {
+                    pruneKeys();
+                    getLog().info("Evicted " + removed + " artifacts from cache");
+                }
+            });
+        } catch (IOException e) {
+            getLog().warn("Artifact cache eviction failed", e);
+        }
+    }
+
+    /**
+     * @return the newest modification time of the key files per blob digest
+     */
+    private Map<String, FileTime> lastUsed() throws IOException {
+        final Map<String, FileTime> used = new HashMap<>();
+        final Path keys = dir.resolve("keys");
+        if (!Files.isDirectory(keys)) {
+            return used;
+        }
+        try (Stream<Path> stream = Files.list(keys)) {
+            for (Path keyFile : stream.filter(file -> !file.getFileName().toString().endsWith(".tmp")).toList()) {
+                final List<String> lines = Files.readAllLines(keyFile);
+                if (!lines.isEmpty()) {
+                    used.merge(lines.get(0).trim(), lastModified(keyFile), (a, b) -> a.compareTo(b) >= 0 ? a : b);
+                }
+            }
+        }
+        return used;
+    }
+
+    private static FileTime lastUse(Path blob, Map<String, FileTime> used) {
+        return used.getOrDefault(blob.getFileName().toString(), lastModified(blob));
+    }
+
+    /**
+     * Blobs are shared by hardlinks, so a write through one server's jar would corrupt every other one.
+     */
+    private static void readOnly(Path file) throws IOException {
+        // on Windows the read-only attribute would also keep the links from being deleted
+        if (Files.getFileAttributeView(file, PosixFileAttributeView.class) != null) {
+            Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("r--r--r--"));
+        }
+    }
+
+    private void pruneKeys() throws IOException {
+        final Path keys = dir.resolve("keys");
+        if (!Files.isDirectory(keys)) {
+            return;
+        }
+        try (Stream<Path> stream = Files.list(keys)) {
+            for (Path keyFile : stream.toList()) {
+                final List<String> lines = Files.readAllLines(keyFile);
+                if (lines.isEmpty() || !Files.exists(blob(lines.get(0).trim()))) {
+                    Files.delete(keyFile);
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("try")
+    private void locked(IORunnable action) throws IOException {
+        synchronized (MONITOR) {
+            Files.createDirectories(dir);
+            try (FileChannel channel = FileChannel.open(dir.resolve("cache.lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock ignored = channel.lock()) {
+                action.run();
+            }
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class).lastModifiedTime();
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private Path blob(String digest) {
+        return dir.resolve("blobs").resolve(digest.substring(0, 2)).resolve(digest);
+    }
+
+    private Path keyFile(String key) {
+        final MessageDigest digest = Checksums.digest("SHA-256");
+        digest.update(key.getBytes(StandardCharsets.UTF_8));
+        return dir.resolve("keys").resolve(Checksums.hex(digest));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Path getDir() {
+        return dir;
+    }
+
+    public Log getLog() {
+        return log;
+    }
+
+    private record Entry(Path path, long size, FileTime used, boolean tree) {
+    }
+
+    @FunctionalInterface
+    private interface IORunnable {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,144 @@
+package de.aethos.util;
+
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * A dynamic AppCDS archive in {@code .aethos/cds/}, keyed by the {@code paper.jar}, the {@code java} executable, the JVM
+ * arguments and the names of the plugin jars. The first launch for a key records the archive when the server stops
+ * cleanly, later launches map it. Plugin jars only count by name, so rebuilding a plugin keeps the archive while adding
+ * or removing one invalidates it.
+ */
+public class CdsArchive {
+    private final Path dir;
+    private final Path server;
+    private final List<String> jvmArguments;
+    private final Log log;
+    private Path archive;
+    private String key;
+
+    public CdsArchive(Path server, List<String> jvmArguments, Log log) {
+        this.dir = server.resolve(".aethos").resolve("cds");
+        this.server = server;
+        this.jvmArguments = jvmArguments;
+        this.log = log;
+    }
+
+    /**
+     * @return the JVM arguments that map the archive, or record it if there is none for the current key
+     */
+    public List<String> arguments() throws IOException {
+        key = key();
+        archive = dir.resolve(key + ".jsa");
+        if (isArchived()) {
+            getLog().info("Using CDS archive " + archive.getFileName());
+            return List.of("-XX:SharedArchiveFile=" + archive.toAbsolutePath());
+        }
+        Files.createDirectories(dir);
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path stale : files.filter(file -> file.getFileName().toString().endsWith(".jsa")).toList()) {
+                Files.delete(stale);
+                getLog().info("Deleted stale CDS archive " + stale.getFileName());
+            }
+        }
+        getLog().info("Recording CDS archive " + archive.getFileName() + ", stop the server cleanly to write it");
+        return List.of("-XX:ArchiveClassesAtExit=" + archive.toAbsolutePath());
+    }
+
+    public boolean isArchived() {
+        return archive != null && Files.isRegularFile(archive);
+    }
+
+    /**
+     * Logs the startup time next to the one of the other mode, so the saving of the archive shows up.
+     */
+    public void recordStartup(Duration startup, boolean archived) throws IOException {
+        final Properties timings = timings();
+        final String mode = archived ? "archived" : "cold";
+        final String other = timings.getProperty(key + "." + (archived ? "cold" : "archived"));
+        final double seconds = startup.toMillis() / 1000d;
+        timings.setProperty(key + "." + mode, String.valueOf(seconds));
+        timings.keySet().removeIf(name -> !String.valueOf(name).startsWith(key + "."));
+        save(timings);
+        final StringBuilder message = new StringBuilder(String.format(Locale.ROOT, "Startup took %.1fs %s CDS archive", seconds, archived ? "with" : "without"));
+        if (other != null) {
+            final double difference = Double.parseDouble(other) - seconds;
+            message.append(String.format(Locale.ROOT, " (%.1fs %s)", Math.abs(archived ? difference : -difference),
+                    archived ? "saved" : "slower than with the archive"));
+        }
+        getLog().info(message.toString());
+    }
+
+    private String key() throws IOException {
+        final List<String> inputs = new ArrayList<>();
+        inputs.add("paper.jar=" + stat(server.resolve("paper.jar")));
+        final Path java = java();
+        inputs.add("java=" + java + "=" + (Files.exists(java) ? stat(java) : ""));
+        inputs.addAll(jvmArguments);
+        final Path plugins = server.resolve("plugins");
+        if (Files.isDirectory(plugins)) {
+            try (Stream<Path> jars = Files.list(plugins)) {
+                jars.map(jar -> jar.getFileName().toString()).filter(name -> name.endsWith(".jar")).sorted().forEach(inputs::add);
+            }
+        }
+        return InstallState.fingerprint(inputs).substring(0, 16);
+    }
+
+    private static Path java() throws IOException {
+        final String path = System.getenv("PATH");
+        if (path != null) {
+            for (String entry : path.split(File.pathSeparator)) {
+                for (String name : List.of("java", "java.exe")) {
+                    final Path candidate = Path.of(entry).resolve(name);
+                    if (Files.isExecutable(candidate)) {
+                        return candidate.toRealPath();
+                    }
+                }
+            }
+        }
+        return Path.of("java");
+    }
+
+    private static String stat(Path file) throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        return attributes.size() + ":" + attributes.lastModifiedTime().toMillis();
+    }
+
+    private Properties timings() throws IOException {
+        final Properties timings = new Properties();
+        final Path file = dir.resolve("startup.properties");
+        if (Files.exists(file)) {
+            try (InputStream input = Files.newInputStream(file)) {
+                timings.load(input);
+            }
+        }
+        return timings;
+    }
+
+    private void save(Properties timings) throws IOException {
+        Files.createDirectories(dir);
+        final Path temp = dir.resolve("startup.properties.tmp");
+        try (OutputStream output = Files.newOutputStream(temp)) {
+            timings.store(output, "Startup seconds per CDS key");
+        }
+        Files.move(temp, dir.resolve("startup.properties"), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public Log getLog() {
+        return log;
+    }
+}
@@ -0,0 +1,155 @@
+package de.aethos.util;
+
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * SHA-256 digests of every jar installed into a server directory, keyed by the path relative to it.
+ */
+public class Checksums {
+    private static final long MAP_CHUNK = 64L * 1024 * 1024;
+    private final Path dir;
+    private final Path file;
+    private final Log log;
+    private final Properties digests = new Properties();
+
+    public Checksums(Path dir, Log log) {
+        this.dir = dir;
+        this.file = dir.resolve(".aethos").resolve("checksums.properties");
+        this.log = log;
+        if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                digests.load(in);
+            } catch (IOException e) {
+                log.warn("Could not read " + file, e);
+            }
+        }
+    }
+
+    public static MessageDigest digest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static String hex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Hashes {@code file} through memory-mapped chunks instead of copying it through a heap buffer.
+     */
+    public static String sha256(Path file) throws IOException {
+        final MessageDigest digest = digest("SHA-256");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            for (long position = 0; position < size; position += MAP_CHUNK) {
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_CHUNK, size - position));
+                digest.update(buffer);
+            }
+        }
+        return hex(digest);
+    }
+
+    public synchronized Optional<String> get(Path jar) {
+        return Optional.ofNullable(digests.getProperty(key(jar)));
+    }
+
+    /**
+     * @return the recorded SHA-256 of {@code jar}, hashing the file only when none is recorded
+     */
+    public String sha256Of(Path jar) throws IOException {
+        final Optional<String> recorded = get(jar);
+        if (recorded.isPresent()) {
+            return recorded.get();
+        }
+        return sha256(jar);
+    }
+
+    public synchronized void put(Path jar, String sha256) {
+        digests.setProperty(key(jar), sha256);
+    }
+
+    public synchronized void remove(Path jar) {
+        digests.remove(key(jar));
+    }
+
+    public synchronized void save() throws IOException {
+        Files.createDirectories(file.getParent());
+        final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            digests.store(out, "SHA-256 of installed jars");
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Re-hashes every recorded jar in parallel and deletes the ones that no longer match, so that the install re-downloads them.
+     * Their blobs in {@code cache} are evicted as well when corrupt, since installed jars are hardlinks of them.
+     *
+     * @return the deleted jars
+     */
+    public List<Path> verify(int threads, ArtifactCache cache) throws IOException {
+        final List<Path> jars;
+        synchronized (this) {
+            jars = digests.stringPropertyNames().stream().map(dir::resolve).filter(Files::exists).toList();
+        }
+        final ExecutorService service = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            final List<Callable<Optional<Path>>> tasks = new ArrayList<>();
+            for (Path jar : jars) {
+                tasks.add(() -> sha256(jar).equals(get(jar).orElse(null)) ? Optional.empty() : Optional.of(jar));
+            }
+            final List<Path> corrupt = new ArrayList<>();
+            for (Future<Optional<Path>> future : service.invokeAll(tasks)) {
+                future.get().ifPresent(corrupt::add);
+            }
+            for (Path jar : corrupt) {
+                getLog().warn(jar + " does not match its recorded checksum and will be downloaded again");
+                Files.delete(jar);
+                cache.evictCorrupt(get(jar).orElse(null));
+                remove(jar);
+            }
+            getLog().info("Verified " + jars.size() + " jars, " + corrupt.size() + " corrupt");
+            return corrupt;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Verification interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Verification failed", e.getCause());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    private String key(Path jar) {
+        return dir.toAbsolutePath().normalize().relativize(jar.toAbsolutePath().normalize()).toString().replace('\\', '/');
+    }
+
+    public Log getLog() {
+        return log;
+    }
+}
@@ -0,0 +1,146 @@
+package de.aethos.util;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs downloads on a bounded pool, limits open connections per repository host and collects every failure
+ * so that they can be reported together once all downloads finished. Tasks beyond a host's limit wait in that host's
+ * queue and are only handed to the pool when one of its downloads finishes, so no worker is ever parked waiting for a
+ * busy host while downloads from other hosts are pending.
+ */
+public class DownloadScheduler implements AutoCloseable {
+    private final ExecutorService executor;
+    private final int connectionsPerHost;
+    private final Log log;
+    private final Map<String, Host> hosts = new HashMap<>();
+    private final Queue<CompletableFuture<?>> tasks = new ConcurrentLinkedQueue<>();
+    private final Queue<Map.Entry<String, Throwable>> failures = new ConcurrentLinkedQueue<>();
+
+    public DownloadScheduler(int concurrency, int connectionsPerHost, Log log) {
+        final AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            final Thread thread = new Thread(runnable, "aethos-download-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.connectionsPerHost = Math.max(1, connectionsPerHost);
+        this.log = log;
+    }
+
+    public <T> CompletableFuture<T> submit(String name, String host, Callable<T> task) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        // track the callback stage so await() only returns once the failure has been recorded
+        tasks.add(future.whenComplete((result, error) -> {
+            if (error != null && !(error instanceof CancellationException)) {
+                failures.add(Map.entry(name, error instanceof CompletionException && error.getCause() != null ? error.getCause() : error));
+            }
+        }));
+        final Runnable run = () -> {
+            try {
+                // cancelled while queued
+                if (!future.isDone()) {
+                    future.complete(task.call());
+                }
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            } finally {
+                release(host);
+            }
+        };
+        synchronized (hosts) {
+            final Host queue = hosts.computeIfAbsent(host, ignored -> new Host());
+            if (queue.active >= connectionsPerHost) {
+                queue.waiting.add(run);
+                return future;
+            }
+            queue.active++;
+        }
+        execute(run, future);
+        return future;
+    }
+
+    /**
+     * Hands the next queued task of {@code host} to the pool, keeping the finished task's slot.
+     */
+    private void release(String host) {
+        final Runnable next;
+        synchronized (hosts) {
+            final Host queue = hosts.get(host);
+            next = queue.waiting.poll();
+            if (next == null) {
+                queue.active--;
+                return;
+            }
+        }
+        execute(next, null);
+    }
+
+    private void execute(Runnable run, CompletableFuture<?> future) {
+        try {
+            executor.execute(run);
+        } catch (RejectedExecutionException e) {
+            // closed: the remaining queued tasks are dropped with it
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Records a failure that did not surface as an exception of a submitted task, e.g. an artifact no repository has.
+     */
+    public void fail(String name, Throwable error) {
+        failures.add(Map.entry(name, error));
+    }
+
+    /**
+     * Waits for every submitted download, including ones submitted while waiting.
+     */
+    public void await() throws MojoExecutionException {
+        CompletableFuture<?> task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.join();
+            } catch (CompletionException | CancellationException ignored) {
+                // recorded in failures
+            }
+        }
+        if (!failures.isEmpty()) {
+            final MojoExecutionException exception = new MojoExecutionException(failures.size() + " download(s) failed");
+            for (Map.Entry<String, Throwable> failure : failures) {
+                getLog().error("Download of " + failure.getKey() + " failed: " + failure.getValue().getMessage());
+                exception.addSuppressed(failure.getValue());
+            }
+            throw exception;
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    public Log getLog() {
+        return log;
+    }
+
+    private static final class Host {
+        private final Queue<Runnable> waiting = new ArrayDeque<>();
+        private int active;
+    }
+}
@@ -0,0 +1,50 @@
+package de.aethos.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ports the OS considers free, held by bound sockets until they are closed, so no other process or reservation is
+ * handed the same port in between. Close the reservation right before the servers configured with it bind.
+ */
+public final class FreePorts implements Closeable {
+    private final List<ServerSocket> sockets;
+
+    private FreePorts(List<ServerSocket> sockets) {
+        this.sockets = sockets;
+    }
+
+    public static synchronized FreePorts reserve(int count) throws IOException {
+        final List<ServerSocket> sockets = new ArrayList<>();
+        try {
+            for (int i = 0; i < count; i++) {
+                sockets.add(new ServerSocket(0, 1, InetAddress.getLoopbackAddress()));
+            }
+            return new FreePorts(sockets);
+        } catch (IOException e) {
+            for (ServerSocket socket : sockets) {
+                socket.close();
+            }
+            throw e;
+        }
+    }
+
+    public int get(int index) {
+        return sockets.get(index).getLocalPort();
+    }
+
+    public int size() {
+        return sockets.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (ServerSocket socket : sockets) {
+            socket.close();
+        }
+    }
+}
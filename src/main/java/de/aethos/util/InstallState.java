@@ -0,0 +1,118 @@
+package de.aethos.util;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Result of the last install, kept in {@code .aethos/install.json}: a fingerprint of the inputs, the size and
+ * modification time of every file it produced and which plugin jars were installed for which dependency.
+ */
+public class InstallState {
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private String fingerprint;
+    private Map<String, String> files = new TreeMap<>();
+    private Map<String, List<String>> plugins = new TreeMap<>();
+
+    public InstallState() {
+    }
+
+    public InstallState(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    public static Path file(Path dir) {
+        return dir.resolve(".aethos").resolve("install.json");
+    }
+
+    public static InstallState read(Path dir) {
+        final Path file = file(dir);
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file)) {
+                final InstallState state = GSON.fromJson(reader, InstallState.class);
+                if (state != null) {
+                    return state;
+                }
+            } catch (IOException | JsonParseException ignored) {
+                // treated like a missing state, the install runs and rewrites it
+            }
+        }
+        return new InstallState();
+    }
+
+    public static String fingerprint(List<String> inputs) {
+        final MessageDigest digest = Checksums.digest("SHA-256");
+        for (String input : inputs) {
+            digest.update(input.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+        }
+        return Checksums.hex(digest);
+    }
+
+    private static String stat(Path file) throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        return attributes.size() + ":" + attributes.lastModifiedTime().toMillis();
+    }
+
+    /**
+     * True if the inputs are unchanged and every recorded file still has its recorded size and modification time.
+     */
+    public boolean isUpToDate(Path dir, String fingerprint) {
+        if (this.fingerprint == null || !this.fingerprint.equals(fingerprint) || files.isEmpty()) {
+            return false;
+        }
+        try {
+            for (Map.Entry<String, String> entry : files.entrySet()) {
+                final Path file = dir.resolve(entry.getKey());
+                if (!Files.exists(file) || !stat(file).equals(entry.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public void record(Path dir, String file) throws IOException {
+        final Path resolved = dir.resolve(file);
+        if (Files.exists(resolved)) {
+            files.put(file, stat(resolved));
+        }
+    }
+
+    public void write(Path dir) throws IOException {
+        final Path file = file(dir);
+        Files.createDirectories(file.getParent());
+        final Path temp = file.resolveSibling("install.json.tmp");
+        try (Writer writer = Files.newBufferedWriter(temp)) {
+            GSON.toJson(this, writer);
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public Map<String, String> getFiles() {
+        return files;
+    }
+
+    public Map<String, List<String>> getPlugins() {
+        return plugins;
+    }
+}
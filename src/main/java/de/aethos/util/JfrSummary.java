@@ -0,0 +1,145 @@
+package de.aethos.util;
+
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.LongToDoubleFunction;
+
+/**
+ * Boils a flight recording down to what matters for a plugin: the methods of its packages that were on CPU, where it
+ * allocated, how long the collector paused the server and which monitors threads waited for. Plugin methods and
+ * allocation sites are attributed to the innermost frame of the plugin's packages, so time spent in server or JDK
+ * code called by the plugin counts for the plugin method that called it. Only events inside the given window count, so
+ * the recording may span the server's startup and shutdown.
+ */
+public record JfrSummary(long executionSamples, List<Entry> hotMethods, List<Entry> pluginMethods,
+                         List<Entry> allocationSites, List<Entry> pluginAllocationSites, Summary gcPausesMillis,
+                         double gcPauseTotalMillis, Map<String, Integer> collections, List<Entry> lockContention) {
+
+    /**
+     * @param from events starting earlier are skipped, e.g. everything before the server was ready
+     * @param to   events starting later are skipped, e.g. the shutdown
+     */
+    public static JfrSummary read(Path recording, List<String> packages, int top, Instant from, Instant to) throws IOException {
+        long samples = 0;
+        final Map<String, Long> hot = new HashMap<>();
+        final Map<String, Long> plugin = new HashMap<>();
+        final Map<String, Long> allocations = new HashMap<>();
+        final Map<String, Long> pluginAllocations = new HashMap<>();
+        final List<Double> pauses = new ArrayList<>();
+        final Map<String, Integer> collections = new TreeMap<>();
+        final Map<String, long[]> locks = new HashMap<>();
+        long allocated = 0;
+        try (RecordingFile file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                final RecordedEvent event = file.readEvent();
+                if (event.getStartTime().isBefore(from) || event.getStartTime().isAfter(to)) {
+                    continue;
+                }
+                switch (event.getEventType().getName()) {
+                    case "jdk.ExecutionSample" -> {
+                        samples++;
+                        top(event.getStackTrace()).ifPresent(method -> hot.merge(method, 1L, Long::sum));
+                        innermost(event.getStackTrace(), packages).ifPresent(method -> plugin.merge(method, 1L, Long::sum));
+                    }
+                    case "jdk.ObjectAllocationSample" -> {
+                        final long weight = event.getLong("weight");
+                        allocated += weight;
+                        top(event.getStackTrace()).ifPresent(method -> allocations.merge(method, weight, Long::sum));
+                        innermost(event.getStackTrace(), packages).ifPresent(method -> pluginAllocations.merge(method, weight, Long::sum));
+                    }
+                    case "jdk.GarbageCollection" -> {
+                        pauses.add(event.getDuration("sumOfPauses").toNanos() / 1e6);
+                        collections.merge(event.getString("name"), 1, Integer::sum);
+                    }
+                    case "jdk.JavaMonitorEnter", "jdk.ThreadPark" -> {
+                        final boolean park = event.getEventType().getName().equals("jdk.ThreadPark");
+                        final Optional<String> caller = innermost(event.getStackTrace(), packages);
+                        // idle pool workers park all the time, a park only counts when plugin code waits
+                        if (park && caller.isEmpty()) {
+                            continue;
+                        }
+                        final RecordedClass monitor = park ? event.getClass("parkedClass") : event.getClass("monitorClass");
+                        final String name = (monitor != null ? monitor.getName() : "(unknown)") + caller.map(method -> " in " + method).orElse("");
+                        final long[] lock = locks.computeIfAbsent(name, key -> new long[2]);
+                        lock[0]++;
+                        lock[1] += event.getDuration().toNanos();
+                    }
+                    default -> {
+                    }
+                }
+            }
+        }
+        final long totalSamples = samples;
+        final long totalAllocated = allocated;
+        final List<Entry> contention = locks.entrySet().stream()
+                .map(lock -> new Entry(lock.getKey(), lock.getValue()[0], lock.getValue()[1] / 1e6, Double.NaN))
+                .sorted(Comparator.comparingDouble(Entry::value).reversed())
+                .limit(top)
+                .toList();
+        return new JfrSummary(samples,
+                ranked(hot, top, count -> count, totalSamples),
+                ranked(plugin, top, count -> count, totalSamples),
+                ranked(allocations, top, bytes -> bytes / 1048576.0, totalAllocated),
+                ranked(pluginAllocations, top, bytes -> bytes / 1048576.0, totalAllocated),
+                Summary.of(pauses),
+                pauses.stream().mapToDouble(Double::doubleValue).sum(),
+                collections,
+                contention);
+    }
+
+    private static List<Entry> ranked(Map<String, Long> totals, int top, LongToDoubleFunction value, long total) {
+        return totals.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(top)
+                .map(entry -> new Entry(entry.getKey(), entry.getValue(), value.applyAsDouble(entry.getValue()), total > 0 ? entry.getValue() * 100.0 / total : Double.NaN))
+                .toList();
+    }
+
+    private static Optional<String> top(RecordedStackTrace stackTrace) {
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(method(stackTrace.getFrames().get(0)));
+    }
+
+    private static Optional<String> innermost(RecordedStackTrace stackTrace, List<String> packages) {
+        if (stackTrace == null || packages.isEmpty()) {
+            return Optional.empty();
+        }
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            if (frame.isJavaFrame()) {
+                final String type = frame.getMethod().getType().getName();
+                if (packages.stream().anyMatch(name -> type.startsWith(name + ".") || type.equals(name))) {
+                    return Optional.of(method(frame));
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static String method(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName();
+    }
+
+    /**
+     * @param count   samples or events
+     * @param value   samples, MB allocated or milliseconds waited
+     * @param percent share of all samples or of all sampled allocations
+     */
+    public record Entry(String name, long count, double value, double percent) {
+    }
+}
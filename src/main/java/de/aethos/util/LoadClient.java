@@ -0,0 +1,451 @@
+package de.aethos.util;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A headless offline mode player speaking protocol 767 (Minecraft 1.21 and 1.21.1). It logs in, answers keep alives,
+ * pings, teleports and chunk batches like a client would, and can walk, chat and run commands. Everything else the
+ * server sends is read and dropped; compressed packets are only inflated as far as their id unless they are handled.
+ */
+public class LoadClient implements Closeable {
+    public static final int PROTOCOL = 767;
+    private static final int LOGIN_DISCONNECT = 0x00, ENCRYPTION_REQUEST = 0x01, LOGIN_SUCCESS = 0x02, SET_COMPRESSION = 0x03, LOGIN_PLUGIN_REQUEST = 0x04;
+    private static final int CONFIG_COOKIE_REQUEST = 0x00, CONFIG_DISCONNECT = 0x02, FINISH_CONFIGURATION = 0x03, CONFIG_KEEP_ALIVE = 0x04, CONFIG_PING = 0x05, KNOWN_PACKS = 0x0E;
+    private static final int CHUNK_BATCH_FINISHED = 0x0C, PLAY_DISCONNECT = 0x1D, KEEP_ALIVE = 0x26, LOGIN_PLAY = 0x2B, PLAY_PING = 0x35, PING_RESPONSE = 0x36, SYNCHRONIZE_POSITION = 0x40;
+    private static final int CONFIRM_TELEPORT = 0x00, CHAT_COMMAND = 0x04, CHAT_MESSAGE = 0x06, CHUNK_BATCH_RECEIVED = 0x08, KEEP_ALIVE_RESPONSE = 0x18, POSITION_ROTATION = 0x1B, PING_REQUEST = 0x21, PLAY_PONG = 0x27;
+
+    private final String name;
+    private final int viewDistance;
+    private final Socket socket = new Socket();
+    private final CompletableFuture<Duration> joined = new CompletableFuture<>();
+    private final List<Double> roundTrips = new ArrayList<>();
+    private final Inflater inflater = new Inflater();
+    private final Deflater deflater = new Deflater();
+    private DataInputStream in;
+    private OutputStream out;
+    private int threshold = -1;
+    private boolean play;
+    private volatile boolean positioned;
+    private double x, y, z;
+    private float yaw;
+    private int keepAlives;
+    private volatile String disconnectReason;
+
+    public LoadClient(String name, int viewDistance) {
+        this.name = name;
+        this.viewDistance = viewDistance;
+    }
+
+    /**
+     * Connects and logs in, returning once the server sent the play login.
+     *
+     * @return the time from opening the socket until the play login
+     */
+    public Duration connect(String host, int port, Duration timeout) throws IOException, TimeoutException {
+        boolean connected = false;
+        try {
+            final Duration duration = open(host, port, timeout);
+            connected = true;
+            return duration;
+        } finally {
+            if (!connected) {
+                close();
+            }
+        }
+    }
+
+    private Duration open(String host, int port, Duration timeout) throws IOException, TimeoutException {
+        final long started = System.nanoTime();
+        socket.connect(new InetSocketAddress(host, port), (int) timeout.toMillis());
+        socket.setTcpNoDelay(true);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024));
+        out = socket.getOutputStream();
+        send(0x00, data -> {
+            writeVarInt(data, PROTOCOL);
+            writeString(data, host);
+            data.writeShort(port);
+            writeVarInt(data, 2);
+        });
+        final UUID uuid = UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes(StandardCharsets.UTF_8));
+        send(0x00, data -> {
+            writeString(data, name);
+            data.writeLong(uuid.getMostSignificantBits());
+            data.writeLong(uuid.getLeastSignificantBits());
+        });
+        final Thread reader = new Thread(() -> read(started), "aethos-load-" + name);
+        reader.setDaemon(true);
+        reader.start();
+        try {
+            return joined.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while logging in " + name, e);
+        }
+    }
+
+    private void read(long started) {
+        try {
+            int state = 0;
+            while (!socket.isClosed()) {
+                final Packet packet = readPacket();
+                if (state == 0) {
+                    state = login(packet);
+                } else if (!play) {
+                    configure(packet);
+                } else {
+                    handle(packet, started);
+                }
+            }
+        } catch (IOException e) {
+            if (disconnectReason == null) {
+                disconnectReason = e instanceof EOFException ? "connection closed" : e.toString();
+            }
+            joined.completeExceptionally(new IOException(name + " was disconnected: " + disconnectReason, e));
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private int login(Packet packet) throws IOException {
+        switch (packet.id) {
+            case LOGIN_DISCONNECT -> throw disconnect(readString(packet.data()));
+            case ENCRYPTION_REQUEST -> throw disconnect("the server is in online mode");
+            case SET_COMPRESSION -> threshold = readVarInt(packet.data());
+            case LOGIN_PLUGIN_REQUEST -> {
+                final int message = readVarInt(packet.data());
+                send(0x02, data -> {
+                    writeVarInt(data, message);
+                    data.writeBoolean(false);
+                });
+            }
+            case LOGIN_SUCCESS -> {
+                send(0x03, data -> {
+                });
+                send(0x00, data -> {
+                    writeString(data, "en_us");
+                    data.writeByte(viewDistance);
+                    writeVarInt(data, 0);
+                    data.writeBoolean(true);
+                    data.writeByte(0x7F);
+                    writeVarInt(data, 1);
+                    data.writeBoolean(false);
+                    data.writeBoolean(true);
+                });
+                return 1;
+            }
+            default -> {
+            }
+        }
+        return 0;
+    }
+
+    private void configure(Packet packet) throws IOException {
+        switch (packet.id) {
+            case CONFIG_DISCONNECT -> throw disconnect("kicked during configuration");
+            case CONFIG_COOKIE_REQUEST -> {
+                final String key = readString(packet.data());
+                send(0x01, data -> {
+                    writeString(data, key);
+                    data.writeBoolean(false);
+                });
+            }
+            case CONFIG_KEEP_ALIVE -> {
+                final long id = packet.data().readLong();
+                send(0x04, data -> data.writeLong(id));
+            }
+            case CONFIG_PING -> {
+                final int id = packet.data().readInt();
+                send(0x05, data -> data.writeInt(id));
+            }
+            // claiming the packs the server offers spares it from sending those registries in full
+            case KNOWN_PACKS -> {
+                final byte[] packs = packet.data().readAllBytes();
+                send(0x07, data -> data.write(packs));
+            }
+            case FINISH_CONFIGURATION -> {
+                send(0x03, data -> {
+                });
+                play = true;
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void handle(Packet packet, long started) throws IOException {
+        switch (packet.id) {
+            case PLAY_DISCONNECT -> throw disconnect("kicked");
+            case LOGIN_PLAY -> joined.complete(Duration.ofNanos(System.nanoTime() - started));
+            case KEEP_ALIVE -> {
+                final long id = packet.data().readLong();
+                send(KEEP_ALIVE_RESPONSE, data -> data.writeLong(id));
+                synchronized (this) {
+                    keepAlives++;
+                }
+            }
+            case PLAY_PING -> {
+                final int id = packet.data().readInt();
+                send(PLAY_PONG, data -> data.writeInt(id));
+            }
+            case PING_RESPONSE -> {
+                final long sent = packet.data().readLong();
+                synchronized (this) {
+                    roundTrips.add((System.nanoTime() - sent) / 1e6);
+                }
+            }
+            case CHUNK_BATCH_FINISHED -> send(CHUNK_BATCH_RECEIVED, data -> data.writeFloat(20));
+            case SYNCHRONIZE_POSITION -> {
+                final DataInputStream position = packet.data();
+                final double x = position.readDouble(), y = position.readDouble(), z = position.readDouble();
+                final float yaw = position.readFloat();
+                position.readFloat();
+                final int relative = position.readByte();
+                final int teleport = readVarInt(position);
+                synchronized (this) {
+                    this.x = (relative & 0x01) != 0 ? this.x + x : x;
+                    this.y = (relative & 0x02) != 0 ? this.y + y : y;
+                    this.z = (relative & 0x04) != 0 ? this.z + z : z;
+                    this.yaw = (relative & 0x08) != 0 ? this.yaw + yaw : yaw;
+                }
+                send(CONFIRM_TELEPORT, data -> writeVarInt(data, teleport));
+                positioned = true;
+            }
+            default -> {
+            }
+        }
+    }
+
+    private IOException disconnect(String reason) {
+        disconnectReason = reason;
+        return new IOException(reason);
+    }
+
+    /**
+     * Walks {@code distance} blocks towards {@code yaw} degrees, once the server placed the player.
+     */
+    public void walk(float yaw, double distance) throws IOException {
+        if (!positioned) {
+            return;
+        }
+        final double x, y, z;
+        synchronized (this) {
+            this.yaw = yaw;
+            this.x -= Math.sin(Math.toRadians(yaw)) * distance;
+            this.z += Math.cos(Math.toRadians(yaw)) * distance;
+            x = this.x;
+            y = this.y;
+            z = this.z;
+        }
+        send(POSITION_ROTATION, data -> {
+            data.writeDouble(x);
+            data.writeDouble(y);
+            data.writeDouble(z);
+            data.writeFloat(yaw);
+            data.writeFloat(0);
+            data.writeBoolean(true);
+        });
+    }
+
+    public void chat(String message) throws IOException {
+        send(CHAT_MESSAGE, data -> {
+            writeString(data, message);
+            data.writeLong(System.currentTimeMillis());
+            data.writeLong(0);
+            data.writeBoolean(false);
+            writeVarInt(data, 0);
+            data.write(new byte[3]);
+        });
+    }
+
+    public void command(String command) throws IOException {
+        send(CHAT_COMMAND, data -> writeString(data, command.startsWith("/") ? command.substring(1) : command));
+    }
+
+    /**
+     * Sends a ping the server answers from its network thread; the round trip is added to {@link #getRoundTrips()}.
+     */
+    public void ping() throws IOException {
+        final long now = System.nanoTime();
+        send(PING_REQUEST, data -> data.writeLong(now));
+    }
+
+    public boolean isConnected() {
+        return joined.isDone() && !joined.isCompletedExceptionally() && disconnectReason == null && !socket.isClosed();
+    }
+
+    public String getDisconnectReason() {
+        return disconnectReason;
+    }
+
+    public synchronized List<Double> getRoundTrips() {
+        return new ArrayList<>(roundTrips);
+    }
+
+    public synchronized int getKeepAlives() {
+        return keepAlives;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // nothing left to release
+        }
+        // after the socket, so a send blocked in a write is released first
+        synchronized (this) {
+            deflater.end();
+        }
+    }
+
+    private Packet readPacket() throws IOException {
+        final int length = readVarInt(in);
+        final byte[] frame = new byte[length];
+        in.readFully(frame);
+        if (threshold < 0) {
+            return Packet.of(frame, 0, frame.length);
+        }
+        final DataInputStream header = new DataInputStream(new ByteArrayInputStream(frame));
+        final int uncompressed = readVarInt(header);
+        final int offset = length - header.available();
+        if (uncompressed == 0) {
+            return Packet.of(frame, offset, length - offset);
+        }
+        try {
+            inflater.reset();
+            inflater.setInput(frame, offset, length - offset);
+            final byte[] id = new byte[Math.min(5, uncompressed)];
+            inflater.inflate(id);
+            final int packetId = readVarInt(new DataInputStream(new ByteArrayInputStream(id)));
+            if (!handles(packetId)) {
+                return new Packet(packetId, new byte[0], 0, 0);
+            }
+            final byte[] data = new byte[uncompressed];
+            System.arraycopy(id, 0, data, 0, id.length);
+            inflater.inflate(data, id.length, uncompressed - id.length);
+            return Packet.of(data, 0, data.length);
+        } catch (DataFormatException e) {
+            throw new IOException("Malformed compressed packet", e);
+        }
+    }
+
+    private boolean handles(int id) {
+        // login and configuration packets are rarely compressed, so only the play packets need filtering
+        return !play || id == PLAY_DISCONNECT || id == LOGIN_PLAY || id == KEEP_ALIVE || id == PLAY_PING || id == PING_RESPONSE
+                || id == CHUNK_BATCH_FINISHED || id == SYNCHRONIZE_POSITION;
+    }
+
+    private synchronized void send(int id, PacketWriter writer) throws IOException {
+        if (socket.isClosed()) {
+            throw new IOException(name + " is closed");
+        }
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        final DataOutputStream data = new DataOutputStream(body);
+        writeVarInt(data, id);
+        writer.write(data);
+        final ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        final DataOutputStream framed = new DataOutputStream(frame);
+        if (threshold < 0) {
+            body.writeTo(frame);
+        } else if (body.size() < threshold) {
+            writeVarInt(framed, 0);
+            body.writeTo(frame);
+        } else {
+            writeVarInt(framed, body.size());
+            deflater.reset();
+            deflater.setInput(body.toByteArray());
+            deflater.finish();
+            final byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                frame.write(buffer, 0, deflater.deflate(buffer));
+            }
+        }
+        final ByteArrayOutputStream packet = new ByteArrayOutputStream(frame.size() + 5);
+        writeVarInt(new DataOutputStream(packet), frame.size());
+        frame.writeTo(packet);
+        packet.writeTo(out);
+        out.flush();
+    }
+
+    static int readVarInt(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            final int read = in.read();
+            if (read == -1) {
+                throw new EOFException();
+            }
+            value |= (read & 0x7F) << shift;
+            if ((read & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("VarInt too long");
+    }
+
+    static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        final byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private interface PacketWriter {
+        void write(DataOutputStream data) throws IOException;
+    }
+
+    private record Packet(int id, byte[] bytes, int offset, int length) {
+
+        static Packet of(byte[] bytes, int offset, int length) throws IOException {
+            final ByteArrayInputStream stream = new ByteArrayInputStream(bytes, offset, length);
+            final int id = readVarInt(stream);
+            final int start = offset + length - stream.available();
+            return new Packet(id, bytes, start, offset + length - start);
+        }
+
+        DataInputStream data() {
+            return new DataInputStream(new ByteArrayInputStream(bytes, offset, length));
+        }
+    }
+}
@@ -7,65 +7,204 @@ import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Optional;
 
 
 public class PaperDownloader {
+    private static final String API_URL = "https://papermc.io/api/v2/projects/";
     private final Path dir;
+    private final String project;
     private final String version;
+    private final String build;
+    private final boolean trackLatest;
+    private final Duration ttl;
+    private final ArtifactCache cache;
+    private final Checksums checksums;
+    private final SegmentedDownloader downloader;
     private final Log log;
+    private PhaseReport report = PhaseReport.disabled();
 
-    public PaperDownloader(Path dir, String version, Log log) {
+    public PaperDownloader(Path dir, String version, String build, boolean trackLatest, Duration ttl, ArtifactCache cache, Checksums checksums, SegmentedDownloader downloader, Log log) {
+        this(dir, "paper", version, build, trackLatest, ttl, cache, checksums, downloader, log);
+    }
+
+    /**
+     * @param project a PaperMC downloads API project such as {@code paper} or {@code velocity}, installed as {@code <project>.jar}
+     */
+    public PaperDownloader(Path dir, String project, String version, String build, boolean trackLatest, Duration ttl, ArtifactCache cache, Checksums checksums, SegmentedDownloader downloader, Log log) {
         this.dir = dir;
+        this.project = project;
         this.version = version;
+        this.build = build;
+        this.trackLatest = trackLatest;
+        this.ttl = ttl;
+        this.cache = cache;
+        this.checksums = checksums;
+        this.downloader = downloader;
         this.log = log;
     }
 
-    public void download() {
-        final Path paperJar = dir.resolve("paper.jar");
-        if (Files.exists(paperJar)) {
-            getLog().info("paper.jar already exists");
+    @SuppressWarnings("try")
+    public void download() throws IOException, MojoExecutionException {
+        final Path paperJar = dir.resolve(project + ".jar");
+        final PaperManifest manifest = PaperManifest.read(dir);
+        final boolean installed = Files.exists(paperJar);
+        if (installed && version.equals(manifest.getVersion()) && build != null && build.equals(manifest.getBuild())) {
+            getLog().info(paperJar.getFileName() + " is build " + build);
+            return;
+        }
+        if (installed && version.equals(manifest.getVersion()) && build == null && !trackLatest) {
+            getLog().info(paperJar.getFileName() + " already exists (build " + manifest.getBuild() + ")");
+            return;
+        }
+        final String build;
+        try (PhaseReport.Timer ignored = report.phase(project + " api")) {
+            build = this.build != null ? this.build : getLatestBuild(manifest);
+        }
+        if (installed && version.equals(manifest.getVersion()) && build.equals(manifest.getBuild())) {
+            getLog().info(paperJar.getFileName() + " is up to date (build " + build + ")");
+            manifest.write(dir);
+            return;
+        }
+        final String key = project + "/" + version + "/" + build;
+        // an interrupted download leaves paper.jar.part and its progress behind so that the next install resumes it
+        final Path temp = dir.resolve(project + ".jar.part");
+        final PhaseReport.Timer lookup = report.phase(project + " cache");
+        final Optional<String> cached = cache.install(key, temp);
+        lookup.close();
+        final String sha256;
+        if (cached.isPresent()) {
+            sha256 = cached.get();
+            report.count("cache.hit");
+            report.artifact(project + ".jar", "cache", Files.size(temp), lookup.elapsed(), true, 0);
         } else {
-            try {
-                URL url = getPaperUrl(version);
-                try (InputStream in = url.openStream()) {
-                    Files.copy(in, paperJar);
-                }
-            } catch (MojoExecutionException | IOException e) {
-                getLog().error(e);
+            report.count("cache.miss");
+            final String expected;
+            try (PhaseReport.Timer ignored = report.phase(project + " api")) {
+                expected = getSha256(manifest, build);
+            }
+            getLog().info("Downloading PaperMC build " + build + " for version " + version + "...");
+            final URL url = getPaperUrl(version, build);
+            final int retries = downloader.getRetries();
+            try (PhaseReport.Timer transfer = report.phase(project + " transfer")) {
+                sha256 = downloader.download(url, temp);
+                report.artifact(project + ".jar", url.toString(), Files.size(temp), transfer.elapsed(), false, downloader.getRetries() - retries);
+            }
+            if (!sha256.equalsIgnoreCase(expected)) {
+                Files.delete(temp);
+                throw new IOException("Checksum mismatch for PaperMC build " + build + ": expected " + expected + " but got " + sha256);
             }
+            cache.store(key, temp, sha256);
         }
+        Files.move(temp, paperJar, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        checksums.put(paperJar, sha256);
+        manifest.setVersion(version);
+        manifest.setBuild(build);
+        manifest.write(dir);
         getLog().info("Server setup completed successfully.");
     }
 
-    public URL getPaperUrl(String version) throws IOException, MojoExecutionException {
+    public URL getPaperUrl(String version, String build) throws IOException {
+        return new URL(API_URL + project + "/versions/" + version + "/builds/" + build + "/downloads/" + project + "-" + version + "-" + build + ".jar");
+    }
+
+    /**
+     * Latest build of {@link #getVersion()}. Answers from the manifest within the TTL and revalidates it with a conditional request afterwards.
+     */
+    public String getLatestBuild(PaperManifest manifest) throws IOException, MojoExecutionException {
+        final boolean known = version.equals(manifest.getVersion()) && manifest.getLatestBuild() != null;
+        if (known && System.currentTimeMillis() - manifest.getChecked() < ttl.toMillis()) {
+            return manifest.getLatestBuild();
+        }
         getLog().info("Fetching latest build number for PaperMC version " + version + "...");
-        final String paperMcApiUrl = "https://papermc.io/api/v2/projects/paper/versions/" + version;
+        final String paperMcApiUrl = API_URL + project + "/versions/" + version + "/builds";
         if (new URL(paperMcApiUrl).openConnection() instanceof HttpURLConnection connection) {
             connection.setRequestMethod("GET");
+            if (known && manifest.getEtag() != null) {
+                connection.setRequestProperty("If-None-Match", manifest.getEtag());
+            }
+            if (known && manifest.getLastModified() != null) {
+                connection.setRequestProperty("If-Modified-Since", manifest.getLastModified());
+            }
+            final int responseCode = connection.getResponseCode();
+            if (known && responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                connection.disconnect();
+                manifest.setChecked(System.currentTimeMillis());
+                return manifest.getLatestBuild();
+            }
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                throw new MojoExecutionException("Failed to fetch PaperMC version info. HTTP error code: " + responseCode);
+            }
+            try (InputStreamReader reader = new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8)) {
+                final JsonObject responseObject = JsonParser.parseReader(reader).getAsJsonObject();
+                final JsonArray builds = responseObject.getAsJsonArray("builds");
+                final JsonObject latest = builds.get(builds.size() - 1).getAsJsonObject();
+                manifest.setLatestBuild(String.valueOf(latest.get("build").getAsInt()));
+                manifest.setLatestSha256(applicationSha256(latest));
+            }
+            manifest.setEtag(connection.getHeaderField("ETag"));
+            manifest.setLastModified(connection.getHeaderField("Last-Modified"));
+            manifest.setChecked(System.currentTimeMillis());
+            if (!version.equals(manifest.getVersion())) {
+                manifest.setBuild(null);
+                manifest.setVersion(version);
+            }
+            return manifest.getLatestBuild();
+        }
+        throw new MojoExecutionException("Unsupported connection to " + paperMcApiUrl);
+    }
+
+    /**
+     * SHA-256 published by the downloads API for {@code build}, taken from the manifest when it is the latest build.
+     */
+    public String getSha256(PaperManifest manifest, String build) throws IOException, MojoExecutionException {
+        if (build.equals(manifest.getLatestBuild()) && manifest.getLatestSha256() != null) {
+            return manifest.getLatestSha256();
+        }
+        final String buildUrl = API_URL + project + "/versions/" + version + "/builds/" + build;
+        if (new URL(buildUrl).openConnection() instanceof HttpURLConnection connection) {
             if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
-                throw new MojoExecutionException("Failed to fetch PaperMC version info. HTTP error code: " + connection.getResponseCode());
+                throw new MojoExecutionException("Failed to fetch PaperMC build info. HTTP error code: " + connection.getResponseCode());
+            }
+            try (InputStreamReader reader = new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8)) {
+                return applicationSha256(JsonParser.parseReader(reader).getAsJsonObject());
             }
-            final InputStream responseStream = connection.getInputStream();
-            final InputStreamReader inputStream = new InputStreamReader(responseStream);
-            final JsonObject responseObject = JsonParser.parseReader(inputStream).getAsJsonObject();
-            final JsonArray builds = responseObject.getAsJsonArray("builds");
-            final int latestBuild = builds.get(builds.size() - 1).getAsInt();
-            getLog().info("Downloading PaperMC build " + latestBuild + " for version " + version + "...");
-            return new URL(paperMcApiUrl + "/builds/" + latestBuild + "/downloads/paper-" + version + "-" + latestBuild + ".jar");
         }
-        return null;
+        throw new MojoExecutionException("Unsupported connection to " + buildUrl);
+    }
+
+    private static String applicationSha256(JsonObject build) {
+        return build.getAsJsonObject("downloads").getAsJsonObject("application").get("sha256").getAsString();
+    }
+
+    public void setReport(PhaseReport report) {
+        this.report = report;
+    }
+
+    public String getProject() {
+        return project;
     }
 
     public String getVersion() {
         return version;
     }
 
+    public String getBuild() {
+        return build;
+    }
+
+    public boolean isTrackLatest() {
+        return trackLatest;
+    }
+
     public Path getDir() {
         return dir;
     }
@@ -0,0 +1,110 @@
+package de.aethos.util;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * State kept in {@code paper.json} next to {@code paper.jar}: the installed build and the last answer of the builds API.
+ */
+public class PaperManifest {
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private String version;
+    private String build;
+    private String latestBuild;
+    private String latestSha256;
+    private String etag;
+    private String lastModified;
+    private long checked;
+
+    public static Path file(Path dir) {
+        return dir.resolve("paper.json");
+    }
+
+    public static PaperManifest read(Path dir) {
+        final Path file = file(dir);
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file)) {
+                final PaperManifest manifest = GSON.fromJson(reader, PaperManifest.class);
+                if (manifest != null) {
+                    return manifest;
+                }
+            } catch (IOException | JsonParseException ignored) {
+                // treated like a missing manifest, the next install rewrites it
+            }
+        }
+        return new PaperManifest();
+    }
+
+    public void write(Path dir) throws IOException {
+        final Path file = file(dir);
+        final Path temp = file.resolveSibling("paper.json.tmp");
+        try (Writer writer = Files.newBufferedWriter(temp)) {
+            GSON.toJson(this, writer);
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    public String getBuild() {
+        return build;
+    }
+
+    public void setBuild(String build) {
+        this.build = build;
+    }
+
+    public String getLatestBuild() {
+        return latestBuild;
+    }
+
+    public void setLatestBuild(String latestBuild) {
+        this.latestBuild = latestBuild;
+    }
+
+    public String getLatestSha256() {
+        return latestSha256;
+    }
+
+    public void setLatestSha256(String latestSha256) {
+        this.latestSha256 = latestSha256;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(String lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    public long getChecked() {
+        return checked;
+    }
+
+    public void setChecked(long checked) {
+        this.checked = checked;
+    }
+}
@@ -0,0 +1,157 @@
+package de.aethos.util;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Runs Paperclip's patch step once per {@code paper.jar} and shares the resulting {@code versions/}, {@code libraries/}
+ * and {@code cache/} trees between server directories, so the first launch of a fresh server skips downloading the
+ * Mojang jar, patching it and fetching libraries.
+ */
+public class PaperclipCache {
+    private static final List<String> TREES = List.of("versions", "libraries", "cache");
+    private static final long TIMEOUT_MINUTES = 10;
+    private static final Map<String, Object> MONITORS = new ConcurrentHashMap<>();
+    private final Path dir;
+    private final Log log;
+
+    public PaperclipCache(Path dir, Log log) {
+        this.dir = dir;
+        this.log = log;
+    }
+
+    /**
+     * Makes sure the patch result for the jar with {@code sha256} exists and links it into {@code server}.
+     */
+    public void install(Path paperJar, String sha256, Path server) throws IOException {
+        final Path patched = patch(paperJar, sha256);
+        // the tree's own mtime is its last use for ArtifactCache.evict, its files are links of the servers' files
+        Files.setLastModifiedTime(patched, FileTime.from(Instant.now()));
+        int linked = 0;
+        for (String tree : TREES) {
+            final Path source = patched.resolve(tree);
+            if (!Files.isDirectory(source)) {
+                continue;
+            }
+            try (Stream<Path> files = Files.walk(source)) {
+                for (Path file : files.filter(Files::isRegularFile).toList()) {
+                    final Path target = server.resolve(tree).resolve(source.relativize(file).toString());
+                    if (Files.exists(target) && Files.size(target) == Files.size(file)) {
+                        continue;
+                    }
+                    Files.createDirectories(target.getParent());
+                    ArtifactCache.link(file, target);
+                    linked++;
+                }
+            }
+        }
+        getLog().info("Linked " + linked + " patched Paper files into " + server);
+    }
+
+    private Path patch(Path paperJar, String sha256) throws IOException {
+        final Path patched = dir.resolve(sha256);
+        if (Files.isDirectory(patched)) {
+            return patched;
+        }
+        Files.createDirectories(dir);
+        // the file lock is held per JVM, so builds of the same jar also have to queue up within this one
+        synchronized (MONITORS.computeIfAbsent(sha256, ignored -> new Object())) {
+            return patchLocked(paperJar, sha256, patched);
+        }
+    }
+
+    @SuppressWarnings("try")
+    private Path patchLocked(Path paperJar, String sha256, Path patched) throws IOException {
+        try (FileChannel channel = FileChannel.open(dir.resolve(sha256 + ".lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock()) {
+            // another build may have finished the patch while this one waited for the lock
+            if (Files.isDirectory(patched)) {
+                return patched;
+            }
+            final Path work = dir.resolve(sha256 + ".tmp-" + ProcessHandle.current().pid());
+            FileUtils.deleteDirectory(work.toFile());
+            Files.createDirectories(work);
+            try {
+                ArtifactCache.link(paperJar, work.resolve("paper.jar"));
+                getLog().info("Patching Paper once for all servers...");
+                final Process process = new ProcessBuilder("java", "-Dpaperclip.patchonly=true", "-jar", "paper.jar")
+                        .directory(work.toFile())
+                        .redirectErrorStream(true)
+                        .redirectOutput(work.resolve("patch.log").toFile())
+                        .start();
+                if (!process.waitFor(TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+                    process.destroyForcibly();
+                    throw new IOException("Paperclip did not finish patching within " + TIMEOUT_MINUTES + " minutes");
+                }
+                if (process.exitValue() != 0) {
+                    Files.copy(work.resolve("patch.log"), dir.resolve(sha256 + ".log"), StandardCopyOption.REPLACE_EXISTING);
+                    throw new IOException("Paperclip exited with " + process.exitValue() + ", see " + dir.resolve(sha256 + ".log"));
+                }
+                Files.delete(work.resolve("paper.jar"));
+                Files.move(work, patched, StandardCopyOption.ATOMIC_MOVE);
+                return patched;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while patching Paper", e);
+            } finally {
+                FileUtils.deleteDirectory(work.toFile());
+            }
+        }
+    }
+
+    /**
+     * @return the finished patch results in {@code dir}, without the work directories of running patches
+     */
+    static List<Path> trees(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> stream = Files.list(dir)) {
+            return stream.filter(Files::isDirectory).filter(tree -> !tree.getFileName().toString().contains(".")).toList();
+        }
+    }
+
+    static long size(Path tree) throws IOException {
+        try (Stream<Path> files = Files.walk(tree)) {
+            long size = 0;
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                size += Files.size(file);
+            }
+            return size;
+        }
+    }
+
+    /**
+     * Deletes a patch result under the same locks as the patch itself, so no build links from a half deleted tree.
+     */
+    @SuppressWarnings("try")
+    static void remove(Path tree) throws IOException {
+        final String sha256 = tree.getFileName().toString();
+        synchronized (MONITORS.computeIfAbsent(sha256, ignored -> new Object())) {
+            try (FileChannel channel = FileChannel.open(tree.resolveSibling(sha256 + ".lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock ignored = channel.lock()) {
+                FileUtils.deleteDirectory(tree.toFile());
+            }
+        }
+        Files.deleteIfExists(tree.resolveSibling(sha256 + ".log"));
+    }
+
+    public Log getLog() {
+        return log;
+    }
+}
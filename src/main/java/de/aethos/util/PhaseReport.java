@@ -0,0 +1,172 @@
+package de.aethos.util;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects how long the phases of a goal took, what every artifact cost and counters such as cache hits, for a JSON
+ * report under {@code target/} that CI runs can be compared by. Thread safe; a disabled report records nothing.
+ */
+public class PhaseReport {
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private final String goal;
+    private final boolean enabled;
+    private final long started = System.currentTimeMillis();
+    private final long startedNanos = System.nanoTime();
+    private final Map<String, Phase> phases = new LinkedHashMap<>();
+    private final List<Artifact> artifacts = new ArrayList<>();
+    private final Map<String, Long> counters = new TreeMap<>();
+    private long firstTransfer = Long.MAX_VALUE;
+    private long lastTransfer = Long.MIN_VALUE;
+
+    public PhaseReport(String goal) {
+        this(goal, true);
+    }
+
+    private PhaseReport(String goal, boolean enabled) {
+        this.goal = goal;
+        this.enabled = enabled;
+    }
+
+    public static PhaseReport disabled() {
+        return new PhaseReport(null, false);
+    }
+
+    /**
+     * Times a phase until the returned timer is closed. Phases run more than once are summed up. The timer is meant for
+     * a try-with-resources block that never references it, so callers suppress the {@code try} lint warning.
+     */
+    public Timer phase(String name) {
+        return new Timer(name, System.nanoTime());
+    }
+
+    public synchronized void record(String phase, long nanos) {
+        if (enabled) {
+            phases.computeIfAbsent(phase, Phase::new).add(nanos);
+        }
+    }
+
+    /**
+     * @param source   where the artifact came from, e.g. a repository URL or {@code cache}
+     * @param retries  failed attempts before the artifact arrived
+     */
+    public synchronized void artifact(String name, String source, long bytes, long nanos, boolean cached, int retries) {
+        if (enabled) {
+            artifacts.add(new Artifact(name, source, bytes, nanos / 1_000_000, mbPerSecond(bytes, nanos), cached, retries));
+            if (!cached) {
+                // artifacts are reported as they finish, downloads overlap, so only the span of all of them is wall time
+                final long now = System.nanoTime();
+                firstTransfer = Math.min(firstTransfer, now - nanos);
+                lastTransfer = Math.max(lastTransfer, now);
+            }
+        }
+    }
+
+    public void count(String counter) {
+        count(counter, 1);
+    }
+
+    public synchronized void count(String counter, long amount) {
+        if (enabled) {
+            counters.merge(counter, amount, Long::sum);
+        }
+    }
+
+    public synchronized void write(Path file) throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        final Map<String, Object> report = new LinkedHashMap<>();
+        report.put("goal", goal);
+        report.put("started", Instant.ofEpochMilli(started).toString());
+        report.put("wallMillis", (System.nanoTime() - startedNanos) / 1_000_000);
+        report.put("phases", new ArrayList<>(phases.values()));
+        report.put("artifacts", artifacts);
+        report.put("counters", counters);
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            GSON.toJson(report, writer);
+        }
+    }
+
+    public synchronized void logSummary(Log log) {
+        if (!enabled) {
+            return;
+        }
+        log.info(goal + " took " + (System.nanoTime() - startedNanos) / 1_000_000 + " ms");
+        for (Phase phase : phases.values()) {
+            log.info(String.format(Locale.ROOT, "  %-28s %7d ms%s", phase.name, phase.totalMillis, phase.count > 1 ? " (" + phase.count + "x)" : ""));
+        }
+        long bytes = 0;
+        for (Artifact artifact : artifacts) {
+            if (!artifact.cached) {
+                bytes += artifact.bytes;
+            }
+        }
+        if (!artifacts.isEmpty()) {
+            final long nanos = lastTransfer > firstTransfer ? lastTransfer - firstTransfer : 0;
+            log.info(String.format(Locale.ROOT, "  %d artifacts, %.1f MB transferred at %.1f MB/s", artifacts.size(), bytes / 1048576.0, mbPerSecond(bytes, nanos)));
+        }
+        if (!counters.isEmpty()) {
+            log.info("  " + counters);
+        }
+    }
+
+    private static double mbPerSecond(long bytes, long nanos) {
+        return nanos > 0 ? bytes / 1048576.0 / (nanos / 1e9) : 0;
+    }
+
+    public final class Timer implements AutoCloseable {
+        private final String name;
+        private final long started;
+
+        private Timer(String name, long started) {
+            this.name = name;
+            this.started = started;
+        }
+
+        public long elapsed() {
+            return System.nanoTime() - started;
+        }
+
+        @Override
+        public void close() {
+            record(name, elapsed());
+        }
+    }
+
+    private static final class Phase {
+        private final String name;
+        private int count;
+        private long totalMillis;
+        private long maxMillis;
+        private transient long totalNanos;
+
+        private Phase(String name) {
+            this.name = name;
+        }
+
+        private void add(long nanos) {
+            count++;
+            totalNanos += nanos;
+            totalMillis = totalNanos / 1_000_000;
+            maxMillis = Math.max(maxMillis, nanos / 1_000_000);
+        }
+    }
+
+    private record Artifact(String name, String source, long bytes, long millis, double mbPerSecond, boolean cached, int retries) {
+    }
+}
@@ -0,0 +1,73 @@
+package de.aethos.util;
+
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Puts the built plugin jar into {@code plugins/}. A jar whose SHA-256 matches the deployed one is left alone; otherwise
+ * it is copied next to the target and moved over it atomically, or linked, so the server never sees a half written jar.
+ */
+public class PluginDeployer {
+    private final Path plugins;
+    private final boolean symlink;
+    private final Log log;
+    private String deployed;
+
+    public PluginDeployer(Path plugins, boolean symlink, Log log) {
+        this.plugins = plugins;
+        this.symlink = symlink;
+        this.log = log;
+    }
+
+    /**
+     * @return true if the deployed jar changed
+     */
+    public boolean deploy(Path jar) throws IOException {
+        final Path target = plugins.resolve(jar.getFileName());
+        if (symlink) {
+            return link(jar.toAbsolutePath(), target);
+        }
+        final String digest = Checksums.sha256(jar);
+        if (deployed == null && Files.isRegularFile(target, LinkOption.NOFOLLOW_LINKS)) {
+            deployed = Checksums.sha256(target);
+        }
+        if (digest.equals(deployed)) {
+            getLog().info(jar.getFileName() + " is unchanged, skipping deploy");
+            return false;
+        }
+        final Path temp = plugins.resolve("." + jar.getFileName() + ".tmp");
+        Files.copy(jar, temp, StandardCopyOption.REPLACE_EXISTING);
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        deployed = digest;
+        getLog().info("Plugin " + jar + " deployed to " + target);
+        return true;
+    }
+
+    private boolean link(Path jar, Path target) throws IOException {
+        final String digest = Checksums.sha256(jar);
+        final boolean linked = Files.isSymbolicLink(target) && Files.readSymbolicLink(target).equals(jar);
+        if (linked && digest.equals(deployed)) {
+            getLog().info(jar.getFileName() + " is unchanged, skipping deploy");
+            return false;
+        }
+        if (!linked) {
+            final Path temp = plugins.resolve("." + jar.getFileName() + ".tmp");
+            Files.deleteIfExists(temp);
+            Files.createSymbolicLink(temp, jar);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            getLog().info("Plugin " + target + " linked to " + jar);
+        }
+        // the first build seen through an existing link counts as a change, the server may still run an older one
+        deployed = digest;
+        return true;
+    }
+
+    public Log getLog() {
+        return log;
+    }
+}
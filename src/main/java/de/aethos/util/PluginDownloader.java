@@ -2,134 +2,286 @@ package de.aethos.util;
 
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.input.TeeInputStream;
 import org.apache.maven.model.Dependency;
 import org.apache.maven.model.Repository;
 import org.apache.maven.model.RepositoryBase;
 import org.apache.maven.plugin.logging.Log;
 
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
 import java.net.URI;
-import java.net.URL;
-import java.nio.channels.Channels;
-import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.function.Function;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
-import java.util.stream.Stream;
 
 public class PluginDownloader {
     private static final Predicate<Dependency> NOT_PAPER = dependency -> !dependency.getArtifactId().equals("paper-api");
     private static final Predicate<Dependency> IS_PROVIDED = dependency -> "provided".equals(dependency.getScope());
     private final Log log;
     private final Path dir;
+    private final ArtifactCache cache;
+    private final RepositoryRouter router;
+    private final Checksums checksums;
     private final Predicate<Dependency> NO_FILE;
     private final List<Dependency> dependencies;
     private final List<Repository> repositories;
-    private final Function<Dependency, Stream<Map.Entry<URL, Path>>> GET_URLS_AND_PATHS;
+    private final Map<String, Integer> misses = new ConcurrentHashMap<>();
+    private PhaseReport report = PhaseReport.disabled();
 
-    public PluginDownloader(Path dir, Log logger, Collection<Dependency> dependencies, List<Repository> repositories) {
+    public PluginDownloader(Path dir, Log logger, Collection<Dependency> dependencies, List<Repository> repositories, ArtifactCache cache, RepositoryRouter router, Checksums checksums) {
         this.log = logger;
         this.dir = dir;
-        NO_FILE = dependency -> !Files.exists(dir.resolve(dependency.getArtifactId() + "-" + dependency.getVersion() + ".jar"));
+        this.cache = cache;
+        this.router = router;
+        this.checksums = checksums;
+        NO_FILE = dependency -> !Files.exists(path(dependency));
         this.repositories = repositories;
         this.dependencies = dependencies.stream().filter(NOT_PAPER).filter(IS_PROVIDED).filter(NO_FILE).toList();
-        GET_URLS_AND_PATHS = dependency -> repositories.stream()
-                .map(RepositoryBase::getUrl)
-                .flatMap(str -> {
-                    URL url = url(str.endsWith("/") ? str : str + "/", dependency);
-                    if (url != null) {
-                        return Stream.of(Map.entry(url, dir.resolve(dependency.getArtifactId() + "-" + dependency.getVersion() + ".jar")));
-                    }
-                    return Stream.empty();
-                });
     }
 
-    private static URL url(String repository, Dependency dependency) {
-        try {
-            return URI.create(repository + dependency.getGroupId().replace(".", "/") + "/" + dependency.getArtifactId() + "/" + dependency.getVersion() + "/" + dependency.getArtifactId() + "-" + dependency.getVersion() + ".jar").toURL();
-        } catch (MalformedURLException e) {
+    private static String cacheKey(Dependency dependency) {
+        if (dependency.getVersion().endsWith("-SNAPSHOT")) {
             return null;
         }
+        return "plugin/" + dependency.getGroupId() + ":" + dependency.getArtifactId() + ":" + dependency.getVersion();
     }
 
-    public void download() {
+    private static String host(String repository) {
+        return URI.create(repository).getHost();
+    }
+
+    public Path path(Dependency dependency) {
+        return dir.resolve(dependency.getArtifactId() + "-" + dependency.getVersion() + ".jar");
+    }
+
+    public void download(DownloadScheduler scheduler) {
         getLog().info("Installing dependencies...");
-        ExecutorService service = Executors.newFixedThreadPool(3);
+        final List<String> urls = repositories.stream().map(RepositoryBase::getUrl).map(RepositoryRouter::normalize).distinct().toList();
         dependencies.stream()
                 .filter(NOT_PAPER)
                 .filter(IS_PROVIDED)
                 .filter(NO_FILE)
-                .flatMap(GET_URLS_AND_PATHS)
-                .map(entry -> downloader(entry.getKey(), entry.getValue()))
-                .map(service::submit)
-                .forEach(future -> {
-                    try {
-                        future.get();
-                    } catch (InterruptedException | ExecutionException e) {
-                        getLog().error(e);
+                .filter(dependency -> !installFromCache(dependency))
+                .forEach(dependency -> {
+                    final List<String> candidates = router.candidates(dependency, urls);
+                    if (!candidates.isEmpty() && router.route(dependency.getGroupId()).filter(candidates.get(0)::equals).isPresent()) {
+                        // known route: ask that repository alone and only race the others when it misses
+                        final String route = candidates.get(0);
+                        scheduler.submit(dependency.getArtifactId(), host(route), () -> {
+                            if (!fetch(dependency, route, null)) {
+                                race(scheduler, dependency, candidates.subList(1, candidates.size()));
+                            }
+                            return null;
+                        });
+                    } else {
+                        race(scheduler, dependency, candidates);
                     }
                 });
-        service.shutdown();
     }
 
-    public Runnable downloader(URL url, Path path) {
-        return () -> {
-            try {
-                downloadPlugin(url, path);
-            } catch (IllegalArgumentException e) {
-                getLog().debug(e);
+    private boolean installFromCache(Dependency dependency) {
+        final Path path = path(dependency);
+        final Optional<String> sha256;
+        try (PhaseReport.Timer lookup = report.phase("plugin cache")) {
+            sha256 = cache.install(cacheKey(dependency), path);
+            if (sha256.isPresent()) {
+                report.artifact(path.getFileName().toString(), "cache", size(path), lookup.elapsed(), true, 0);
             }
-        };
+        }
+        report.count(sha256.isPresent() ? "cache.hit" : "cache.miss");
+        sha256.ifPresent(digest -> checksums.put(path, digest));
+        return sha256.isPresent();
     }
 
-    public void downloadPlugin(URL url, Path path) {
-        try {
-            HttpURLConnection httpURLConnection = (HttpURLConnection) url.openConnection();
-            httpURLConnection.setRequestMethod("HEAD");
-            httpURLConnection.connect();
+    /**
+     * Probes all repositories at once. The first one answering 200 streams the jar, all others are cancelled or disconnect.
+     */
+    private void race(DownloadScheduler scheduler, Dependency dependency, List<String> repositories) {
+        if (repositories.isEmpty()) {
+            notFound(scheduler, dependency);
+            return;
+        }
+        final AtomicBoolean won = new AtomicBoolean();
+        final AtomicInteger pending = new AtomicInteger(repositories.size());
+        final List<CompletableFuture<Boolean>> racers = new CopyOnWriteArrayList<>();
+        for (String repository : repositories) {
+            final int index = racers.size();
+            racers.add(scheduler.submit(dependency.getArtifactId(), host(repository), () -> {
+                try {
+                    if (fetch(dependency, repository, won)) {
+                        for (int i = 0; i < racers.size(); i++) {
+                            if (i != index) {
+                                racers.get(i).cancel(false);
+                            }
+                        }
+                        return true;
+                    }
+                    return false;
+                } finally {
+                    if (pending.decrementAndGet() == 0 && !won.get()) {
+                        notFound(scheduler, dependency);
+                    }
+                }
+            }));
+        }
+    }
 
-            int responseCode = httpURLConnection.getResponseCode();
-            if (!(responseCode == HttpURLConnection.HTTP_OK)) {
-                return;
-            }
+    private static void notFound(DownloadScheduler scheduler, Dependency dependency) {
+        scheduler.fail(dependency.getArtifactId(), new IOException(dependency.getGroupId() + ":" + dependency.getArtifactId() + ":" + dependency.getVersion() + " could not be found in any repository"));
+    }
 
-            httpURLConnection.disconnect();
+    /**
+     * Downloads {@code dependency} from {@code repository}. Errors before the repository answered 200 count as a miss.
+     *
+     * @param won shared by all racers of one dependency, {@code null} when not racing
+     */
+    @SuppressWarnings("try")
+    private boolean fetch(Dependency dependency, String repository, AtomicBoolean won) throws IOException {
+        if (won != null && won.get()) {
+            return false;
+        }
+        final long started = System.nanoTime();
+        final HttpURLConnection connection;
+        try (PhaseReport.Timer ignored = report.phase("plugin probe")) {
+            connection = (HttpURLConnection) router.url(repository, dependency).openConnection();
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                connection.disconnect();
+                miss(dependency);
+                return false;
+            }
+        } catch (IOException e) {
+            getLog().debug(repository + " failed for " + dependency.getArtifactId(), e);
+            miss(dependency);
+            return false;
+        }
+        if (won != null && !won.compareAndSet(false, true)) {
+            connection.disconnect();
+            return false;
+        }
+        router.record(dependency.getGroupId(), repository);
+        final Path path = path(dependency);
+        final Optional<String> installed = downloadPlugin(connection, path);
+        report.artifact(path.getFileName().toString(), repository, size(path), System.nanoTime() - started, false, misses.getOrDefault(dependency.getArtifactId(), 0));
+        installed.ifPresent(sha256 -> {
+            checksums.put(path, sha256);
+            cache.store(cacheKey(dependency), path, sha256);
+        });
+        return true;
+    }
 
-            if (!isPlugin(url.openStream())) {
+    /**
+     * Streams the jar into {@code path}, hashing it on the way and checking the hash against the repository's checksum sidecar.
+     *
+     * @return the SHA-256 of the installed plugin, empty if the jar is not a plugin
+     */
+    @SuppressWarnings("try")
+    public Optional<String> downloadPlugin(HttpURLConnection connection, Path path) throws IOException {
+        Path temp = null;
+        try {
+            getLog().info("Downloading : " + connection.getURL() + " ...");
+            FileUtils.createParentDirectories(path.toFile());
+            temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".part");
+            final MessageDigest sha256 = Checksums.digest("SHA-256");
+            final MessageDigest sha1 = Checksums.digest("SHA-1");
+            final boolean plugin;
+            // the jar is scanned and hashed while it is written, so plugins and non-plugins both cost a single transfer
+            try (PhaseReport.Timer ignored = report.phase("plugin transfer");
+                 InputStream in = new DigestInputStream(new DigestInputStream(connection.getInputStream(), sha256), sha1);
+                 OutputStream out = Files.newOutputStream(temp);
+                 TeeInputStream tee = new TeeInputStream(in, out)) {
+                plugin = isPlugin(tee);
+                if (plugin) {
+                    tee.transferTo(OutputStream.nullOutputStream());
+                }
+            }
+            if (!plugin) {
                 getLog().info("Skipping dependency. " + path + " is not a Plugin");
-                return;
+                return Optional.empty();
             }
-            InputStream inputStream = url.openStream();
-            getLog().info("Downloading : " + url + " ...");
-            if (!Files.exists(path)) {
-                FileUtils.createParentDirectories(path.toFile());
-                Files.createFile(path);
+            final String digest = Checksums.hex(sha256);
+            try (PhaseReport.Timer ignored = report.phase("plugin verify")) {
+                verify(connection.getURL().toString(), digest, Checksums.hex(sha1));
             }
-
-            ReadableByteChannel rbc = Channels.newChannel(inputStream);
-            FileOutputStream fos = new FileOutputStream(path.toString());
-            fos.getChannel().transferFrom(rbc, 0, Long.MAX_VALUE);
-            rbc.close();
-            fos.close();
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
             getLog().info("Installation finished: " + path.getFileName());
+            return Optional.of(digest);
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    getLog().debug(e);
+                }
+            }
+        }
+    }
+
+    private void verify(String url, String sha256, String sha1) throws IOException {
+        final Optional<String> expected256 = sidecar(url + ".sha256");
+        if (expected256.isPresent()) {
+            if (!expected256.get().equalsIgnoreCase(sha256)) {
+                throw new IOException("SHA-256 mismatch for " + url + ": expected " + expected256.get() + " but got " + sha256);
+            }
+            return;
+        }
+        final Optional<String> expected1 = sidecar(url + ".sha1");
+        if (expected1.isPresent()) {
+            if (!expected1.get().equalsIgnoreCase(sha1)) {
+                throw new IOException("SHA-1 mismatch for " + url + ": expected " + expected1.get() + " but got " + sha1);
+            }
+            return;
+        }
+        getLog().debug("No checksum published for " + url);
+    }
+
+    private static Optional<String> sidecar(String url) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) URI.create(url).toURL().openConnection();
+        if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+            connection.disconnect();
+            return Optional.empty();
+        }
+        try (InputStream in = connection.getInputStream()) {
+            // sidecars may carry the file name after the hash
+            final String[] content = new String(in.readAllBytes(), StandardCharsets.US_ASCII).trim().split("\\s+");
+            return content[0].isEmpty() ? Optional.empty() : Optional.of(content[0]);
+        }
+    }
+
+    private void miss(Dependency dependency) {
+        misses.merge(dependency.getArtifactId(), 1, Integer::sum);
+        report.count("probe.miss");
+    }
+
+    private static long size(Path path) {
+        try {
+            return Files.size(path);
         } catch (IOException e) {
-            getLog().error(e);
+            return 0;
         }
     }
 
+    public void setReport(PhaseReport report) {
+        this.report = report;
+    }
+
     public boolean isPlugin(InputStream stream) throws IOException {
         JarEntry entry;
         JarInputStream jis = new JarInputStream(stream);
@@ -0,0 +1,183 @@
+package de.aethos.util;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import org.apache.maven.plugin.logging.Log;
+import org.yaml.snakeyaml.error.YAMLException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Plugin metadata of every jar in {@code plugins/}, kept in {@code .aethos/plugin-index.json}. Jars whose size and
+ * modification time did not change are not opened again; new ones are inspected through the zip central directory,
+ * so only {@code plugin.yml} / {@code paper-plugin.yml} is read from them.
+ */
+public class PluginIndex {
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private final Path plugins;
+    private final Path file;
+    private final Log log;
+    private Map<String, Entry> entries = new TreeMap<>();
+
+    public PluginIndex(Path dir, Log log) {
+        this.plugins = dir.resolve("plugins");
+        this.file = dir.resolve(".aethos").resolve("plugin-index.json");
+        this.log = log;
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file)) {
+                final Map<String, Entry> loaded = GSON.fromJson(reader, new TypeToken<TreeMap<String, Entry>>() {
+                }.getType());
+                if (loaded != null) {
+                    entries = loaded;
+                }
+            } catch (IOException | JsonParseException e) {
+                log.debug("Rebuilding plugin index", e);
+            }
+        }
+    }
+
+    public static Optional<PluginMetadata> inspect(Path jar) throws IOException {
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+            final ZipEntry paper = zip.getEntry("paper-plugin.yml");
+            if (paper != null) {
+                return Optional.of(PluginMetadata.fromPaperPluginYml(read(zip, paper)));
+            }
+            final ZipEntry bukkit = zip.getEntry("plugin.yml");
+            if (bukkit != null) {
+                return Optional.of(PluginMetadata.fromPluginYml(read(zip, bukkit)));
+            }
+            return Optional.empty();
+        } catch (YAMLException e) {
+            throw new IOException("Invalid plugin descriptor in " + jar.getFileName(), e);
+        }
+    }
+
+    private static String read(ZipFile zip, ZipEntry entry) throws IOException {
+        try (InputStream in = zip.getInputStream(entry)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Brings the index in line with {@code plugins/}, inspecting only new or changed jars.
+     *
+     * @return metadata of every plugin, keyed by jar name
+     */
+    public Map<String, PluginMetadata> refresh() throws IOException {
+        final Map<String, Entry> refreshed = new TreeMap<>();
+        int inspected = 0;
+        if (Files.isDirectory(plugins)) {
+            try (Stream<Path> stream = Files.list(plugins)) {
+                for (Path jar : stream.filter(path -> path.getFileName().toString().endsWith(".jar")).toList()) {
+                    final String name = jar.getFileName().toString();
+                    final BasicFileAttributes attributes = Files.readAttributes(jar, BasicFileAttributes.class);
+                    final Entry known = entries.get(name);
+                    if (known != null && known.size() == attributes.size() && known.modified() == attributes.lastModifiedTime().toMillis()) {
+                        refreshed.put(name, known);
+                        continue;
+                    }
+                    try {
+                        refreshed.put(name, new Entry(attributes.size(), attributes.lastModifiedTime().toMillis(), inspect(jar).orElse(null)));
+                    } catch (IOException e) {
+                        getLog().warn(name + " is not a readable jar", e);
+                    }
+                    inspected++;
+                }
+            }
+        }
+        entries = refreshed;
+        save();
+        getLog().debug("Plugin index: " + entries.size() + " jars, " + inspected + " inspected");
+        return getPlugins();
+    }
+
+    public Map<String, PluginMetadata> getPlugins() {
+        final Map<String, PluginMetadata> plugins = new TreeMap<>();
+        entries.forEach((name, entry) -> {
+            if (entry.plugin() != null) {
+                plugins.put(name, entry.plugin());
+            }
+        });
+        return plugins;
+    }
+
+    public Optional<PluginMetadata> find(String name) {
+        return entries.values().stream().map(Entry::plugin).filter(plugin -> plugin != null && name.equals(plugin.name())).findFirst();
+    }
+
+    /**
+     * Hard dependencies that no installed plugin provides, per plugin name. A plugin that requires a plugin with
+     * missing dependencies is reported with those as well, since it will not enable either.
+     */
+    public Map<String, Set<String>> missingDependencies() {
+        final Map<String, PluginMetadata> byName = new HashMap<>();
+        for (PluginMetadata plugin : getPlugins().values()) {
+            if (plugin.name() != null) {
+                byName.put(plugin.name(), plugin);
+                plugin.provides().forEach(provided -> byName.putIfAbsent(provided, plugin));
+            }
+        }
+        final Map<String, Set<String>> missing = new TreeMap<>();
+        for (PluginMetadata plugin : byName.values()) {
+            final Set<String> absent = new LinkedHashSet<>();
+            for (String required : requirements(plugin, byName)) {
+                if (!byName.containsKey(required)) {
+                    absent.add(required);
+                }
+            }
+            if (!absent.isEmpty()) {
+                missing.put(plugin.name(), absent);
+            }
+        }
+        return missing;
+    }
+
+    private static Set<String> requirements(PluginMetadata plugin, Map<String, PluginMetadata> byName) {
+        final Set<String> requirements = new LinkedHashSet<>();
+        final Deque<String> queue = new ArrayDeque<>(plugin.depend());
+        while (!queue.isEmpty()) {
+            final String required = queue.poll();
+            if (requirements.add(required) && byName.containsKey(required)) {
+                queue.addAll(byName.get(required).depend());
+            }
+        }
+        return requirements;
+    }
+
+    private void save() throws IOException {
+        Files.createDirectories(file.getParent());
+        final Path temp = file.resolveSibling("plugin-index.json.tmp");
+        try (Writer writer = Files.newBufferedWriter(temp)) {
+            GSON.toJson(entries, writer);
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public Log getLog() {
+        return log;
+    }
+
+    public record Entry(long size, long modified, PluginMetadata plugin) {
+    }
+}
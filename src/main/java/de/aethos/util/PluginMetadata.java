@@ -0,0 +1,86 @@
+package de.aethos.util;
+
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public record PluginMetadata(String name, String version, String main, List<String> depend, List<String> softdepend,
+                             List<String> loadbefore, List<String> provides, boolean paper) {
+
+    public static PluginMetadata fromPluginYml(String content) {
+        final Map<?, ?> yaml = load(content);
+        return new PluginMetadata(
+                string(yaml.get("name")),
+                string(yaml.get("version")),
+                string(yaml.get("main")),
+                list(yaml.get("depend")),
+                list(yaml.get("softdepend")),
+                list(yaml.get("loadbefore")),
+                list(yaml.get("provides")),
+                false);
+    }
+
+    /**
+     * Maps the {@code dependencies.server} section of a {@code paper-plugin.yml} onto the {@code plugin.yml} lists:
+     * required dependencies become {@code depend}, optional ones {@code softdepend} and ones loaded {@code AFTER} this plugin {@code loadbefore}.
+     */
+    public static PluginMetadata fromPaperPluginYml(String content) {
+        final Map<?, ?> yaml = load(content);
+        final List<String> depend = new ArrayList<>();
+        final List<String> softdepend = new ArrayList<>();
+        final List<String> loadbefore = new ArrayList<>();
+        if (yaml.get("dependencies") instanceof Map<?, ?> dependencies && dependencies.get("server") instanceof Map<?, ?> server) {
+            for (Map.Entry<?, ?> entry : server.entrySet()) {
+                final String name = String.valueOf(entry.getKey());
+                final Map<?, ?> options = entry.getValue() instanceof Map<?, ?> map ? map : Map.of();
+                if ("AFTER".equalsIgnoreCase(string(options.get("load")))) {
+                    loadbefore.add(name);
+                }
+                if (!"false".equalsIgnoreCase(string(options.get("required")))) {
+                    depend.add(name);
+                } else {
+                    softdepend.add(name);
+                }
+            }
+        }
+        return new PluginMetadata(
+                string(yaml.get("name")),
+                string(yaml.get("version")),
+                string(yaml.get("main")),
+                depend,
+                softdepend,
+                loadbefore,
+                list(yaml.get("provides")),
+                true);
+    }
+
+    /**
+     * Parses like Bukkit does, with SnakeYAML's safe constructor, so e.g. an unquoted {@code version: 1.10} reads as
+     * {@code 1.1} here just like on the server.
+     */
+    private static Map<?, ?> load(String content) {
+        final Object root = new Yaml(new SafeConstructor(new LoaderOptions())).load(content);
+        return root instanceof Map<?, ?> map ? map : Map.of();
+    }
+
+    /**
+     * @return a list value as strings; a single value, as in {@code depend: Vault}, as a list of one
+     */
+    private static List<String> list(Object value) {
+        if (value instanceof List<?> list) {
+            return list.stream().map(String::valueOf).toList();
+        }
+        if (value == null || String.valueOf(value).isBlank()) {
+            return List.of();
+        }
+        return List.of(String.valueOf(value));
+    }
+
+    private static String string(Object value) {
+        return value == null ? null : String.valueOf(value);
+    }
+}
@@ -0,0 +1,141 @@
+package de.aethos.util;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.collection.CollectRequest;
+import org.eclipse.aether.graph.Exclusion;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.eclipse.aether.resolution.DependencyRequest;
+import org.eclipse.aether.resolution.DependencyResolutionException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Installs provided plugin dependencies through Maven's own resolver, so the local repository, settings.xml mirrors
+ * and proxies as well as offline mode apply. Only artifacts missing from the local repository hit the network.
+ */
+public class PluginResolver {
+    private static final Predicate<Dependency> NOT_PAPER = dependency -> !dependency.getArtifactId().equals("paper-api");
+    private static final Predicate<Dependency> IS_PROVIDED = dependency -> "provided".equals(dependency.getScope());
+    private static final Set<Exclusion> SERVER_API = Set.of(
+            new Exclusion("io.papermc.paper", "paper-api", "*", "*"),
+            new Exclusion("org.spigotmc", "spigot-api", "*", "*"),
+            new Exclusion("org.bukkit", "bukkit", "*", "*"));
+    private final Path dir;
+    private final RepositorySystem system;
+    private final RepositorySystemSession session;
+    private final List<RemoteRepository> repositories;
+    private final Checksums checksums;
+    private final Log log;
+    private final Map<String, Set<String>> installed = new ConcurrentHashMap<>();
+
+    public PluginResolver(Path dir, RepositorySystem system, RepositorySystemSession session, List<RemoteRepository> repositories, Checksums checksums, Log log) {
+        this.dir = dir;
+        this.system = system;
+        this.session = session;
+        this.repositories = repositories;
+        this.checksums = checksums;
+        this.log = log;
+    }
+
+    private static Artifact artifact(Dependency dependency) {
+        return new DefaultArtifact(dependency.getGroupId(), dependency.getArtifactId(), dependency.getClassifier(), "jar", dependency.getVersion());
+    }
+
+    public static String coordinates(Dependency dependency) {
+        return dependency.getGroupId() + ":" + dependency.getArtifactId() + ":" + dependency.getVersion();
+    }
+
+    /**
+     * @return the dependencies that could not be resolved
+     */
+    public List<Dependency> resolve(Collection<Dependency> dependencies, boolean transitive) throws IOException {
+        final List<Dependency> pending = dependencies.stream()
+                .filter(NOT_PAPER)
+                .filter(IS_PROVIDED)
+                .filter(dependency -> !Files.exists(dir.resolve(dependency.getArtifactId() + "-" + dependency.getVersion() + ".jar")))
+                .toList();
+        if (pending.isEmpty()) {
+            return List.of();
+        }
+        getLog().info("Resolving " + pending.size() + " dependencies through the local repository...");
+        final List<Dependency> unresolved = new ArrayList<>();
+        if (transitive) {
+            for (Dependency dependency : pending) {
+                final CollectRequest collect = new CollectRequest(new org.eclipse.aether.graph.Dependency(artifact(dependency), "runtime", false, SERVER_API), repositories);
+                List<ArtifactResult> results;
+                try {
+                    results = system.resolveDependencies(session, new DependencyRequest(collect, null)).getArtifactResults();
+                } catch (DependencyResolutionException e) {
+                    getLog().debug(e);
+                    results = e.getResult() != null ? e.getResult().getArtifactResults() : List.of();
+                    unresolved.add(dependency);
+                }
+                for (ArtifactResult result : results) {
+                    if (result.isResolved()) {
+                        install(coordinates(dependency), result.getArtifact());
+                    }
+                }
+            }
+        } else {
+            final List<ArtifactRequest> requests = pending.stream().map(dependency -> new ArtifactRequest(artifact(dependency), repositories, null)).toList();
+            List<ArtifactResult> results;
+            try {
+                results = system.resolveArtifacts(session, requests);
+            } catch (ArtifactResolutionException e) {
+                getLog().debug(e);
+                results = e.getResults();
+            }
+            for (int i = 0; i < results.size(); i++) {
+                if (results.get(i).isResolved()) {
+                    install(coordinates(pending.get(i)), results.get(i).getArtifact());
+                } else {
+                    unresolved.add(pending.get(i));
+                }
+            }
+        }
+        return unresolved;
+    }
+
+    private void install(String owner, Artifact artifact) throws IOException {
+        final Path source = artifact.getFile().toPath();
+        final Path target = dir.resolve(artifact.getArtifactId() + "-" + artifact.getBaseVersion() + ".jar");
+        if (!Files.exists(target)) {
+            if (PluginIndex.inspect(source).isEmpty()) {
+                getLog().debug("Skipping dependency. " + artifact + " is not a Plugin");
+                return;
+            }
+            ArtifactCache.link(source, target);
+            checksums.put(target, Checksums.sha256(target));
+            getLog().info("Installed " + target.getFileName() + " from " + source);
+        }
+        installed.computeIfAbsent(owner, ignored -> ConcurrentHashMap.newKeySet()).add(target.getFileName().toString());
+    }
+
+    /**
+     * Plugin jar names installed in this run, by the coordinates of the dependency that pulled them in.
+     */
+    public Map<String, Set<String>> getInstalled() {
+        return installed;
+    }
+
+    public Log getLog() {
+        return log;
+    }
+}
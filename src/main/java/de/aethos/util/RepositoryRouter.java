@@ -0,0 +1,131 @@
+package de.aethos.util;
+
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.Snapshot;
+import org.apache.maven.artifact.repository.metadata.SnapshotVersion;
+import org.apache.maven.artifact.repository.metadata.Versioning;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Reader;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * Remembers which repository served a groupId and builds artifact URLs, resolving {@code -SNAPSHOT} versions to
+ * the timestamped jar listed in the repository's {@code maven-metadata.xml}.
+ */
+public class RepositoryRouter {
+    private final Path file;
+    private final Log log;
+    private final Properties routes = new Properties();
+
+    public RepositoryRouter(Path file, Log log) {
+        this.file = file;
+        this.log = log;
+        if (file != null && Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                routes.load(in);
+            } catch (IOException e) {
+                log.warn("Could not read repository routes from " + file, e);
+            }
+        }
+    }
+
+    public static String normalize(String repository) {
+        return repository.endsWith("/") ? repository : repository + "/";
+    }
+
+    /**
+     * Looks up the repository recorded for the longest known prefix of {@code groupId} with at least two segments.
+     */
+    public synchronized Optional<String> route(String groupId) {
+        String prefix = groupId;
+        while (prefix.indexOf('.') != -1) {
+            final String repository = routes.getProperty(prefix);
+            if (repository != null) {
+                return Optional.of(repository);
+            }
+            prefix = prefix.substring(0, prefix.lastIndexOf('.'));
+        }
+        return Optional.empty();
+    }
+
+    public synchronized void record(String groupId, String repository) {
+        if (repository.equals(routes.getProperty(groupId))) {
+            return;
+        }
+        routes.setProperty(groupId, repository);
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            final Path temp = file.resolveSibling(file.getFileName() + "." + ProcessHandle.current().pid() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                routes.store(out, "groupId to repository routes");
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            getLog().warn("Could not persist repository routes to " + file, e);
+        }
+    }
+
+    /**
+     * Repositories ordered with the routed one first.
+     */
+    public List<String> candidates(Dependency dependency, List<String> repositories) {
+        final List<String> candidates = new ArrayList<>(repositories);
+        route(dependency.getGroupId()).filter(candidates::remove).ifPresent(route -> candidates.add(0, route));
+        return candidates;
+    }
+
+    public URL url(String repository, Dependency dependency) throws IOException {
+        final String directory = normalize(repository) + dependency.getGroupId().replace(".", "/") + "/" + dependency.getArtifactId() + "/" + dependency.getVersion() + "/";
+        final String version = dependency.getVersion().endsWith("-SNAPSHOT") ? snapshotVersion(directory, dependency) : dependency.getVersion();
+        return URI.create(directory + dependency.getArtifactId() + "-" + version + ".jar").toURL();
+    }
+
+    private String snapshotVersion(String directory, Dependency dependency) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) URI.create(directory + "maven-metadata.xml").toURL().openConnection();
+        if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+            connection.disconnect();
+            return dependency.getVersion();
+        }
+        try (InputStream in = connection.getInputStream()) {
+            final Metadata metadata = new MetadataXpp3Reader().read(in, false);
+            final Versioning versioning = metadata.getVersioning();
+            if (versioning == null) {
+                return dependency.getVersion();
+            }
+            for (SnapshotVersion snapshotVersion : versioning.getSnapshotVersions()) {
+                if ("jar".equals(snapshotVersion.getExtension()) && (snapshotVersion.getClassifier() == null || snapshotVersion.getClassifier().isEmpty())) {
+                    return snapshotVersion.getVersion();
+                }
+            }
+            final Snapshot snapshot = versioning.getSnapshot();
+            if (snapshot != null && snapshot.getTimestamp() != null) {
+                return dependency.getVersion().replace("SNAPSHOT", snapshot.getTimestamp() + "-" + snapshot.getBuildNumber());
+            }
+            return dependency.getVersion();
+        } catch (XmlPullParserException e) {
+            throw new IOException("Invalid maven-metadata.xml in " + directory, e);
+        }
+    }
+
+    public Log getLog() {
+        return log;
+    }
+}
@@ -0,0 +1,309 @@
+package de.aethos.util;
+
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fetches large artifacts with HTTP range requests in parallel segments, written into a preallocated file through
+ * positional writes. Progress is kept in a {@code .state} file next to the target so that an interrupted download
+ * resumes where it stopped. Servers without range support get a plain streamed download.
+ */
+public class SegmentedDownloader {
+    static final long MIN_SEGMENT_SIZE = 4L * 1024 * 1024;
+    private static final long SAVE_INTERVAL = 1024 * 1024;
+    private static final int RETRIES = 5;
+    private final int segments;
+    private final AtomicInteger retries = new AtomicInteger();
+    private final Log log;
+
+    public SegmentedDownloader(int segments, Log log) {
+        this.segments = Math.max(1, segments);
+        this.log = log;
+    }
+
+    /**
+     * @return the SHA-256 of the downloaded file
+     */
+    public String download(URL url, Path target) throws IOException {
+        final Path stateFile = target.resolveSibling(target.getFileName() + ".state");
+        boolean resumable = false;
+        try {
+            final HttpURLConnection head = (HttpURLConnection) url.openConnection();
+            head.setRequestMethod("HEAD");
+            final int responseCode = head.getResponseCode();
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                throw new IOException("HTTP " + responseCode + " for " + url);
+            }
+            final long length = head.getContentLengthLong();
+            final String etag = head.getHeaderField("ETag");
+            final boolean ranges = "bytes".equalsIgnoreCase(head.getHeaderField("Accept-Ranges"));
+            head.disconnect();
+            if (!ranges || length < 2 * MIN_SEGMENT_SIZE) {
+                return stream(url, target);
+            }
+
+            Progress progress = Progress.load(stateFile, url, etag, length);
+            if (progress == null || !Files.exists(target) || Files.size(target) != length) {
+                progress = new Progress(stateFile, url, etag, length, segments(length, segments));
+            } else {
+                getLog().info("Resuming download of " + target.getFileName() + " at " + progress.completed() * 100 / length + "%");
+            }
+            resumable = true;
+            try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                if (channel.size() != length) {
+                    channel.truncate(0);
+                    channel.write(ByteBuffer.wrap(new byte[1]), length - 1);
+                }
+                progress.save();
+                final ExecutorService service = Executors.newFixedThreadPool(progress.count());
+                try {
+                    final List<Future<?>> futures = new ArrayList<>();
+                    for (int i = 0; i < progress.count(); i++) {
+                        final int index = i;
+                        final Progress state = progress;
+                        futures.add(service.submit(() -> {
+                            fetch(url, etag, channel, state, index);
+                            return null;
+                        }));
+                    }
+                    for (Future<?> future : futures) {
+                        future.get();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Download of " + url + " interrupted", e);
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+                } finally {
+                    service.shutdownNow();
+                    if (!progress.isComplete()) {
+                        progress.save();
+                    }
+                }
+                channel.force(false);
+            }
+            resumable = false;
+            return Checksums.sha256(target);
+        } finally {
+            // only an interrupted segmented download leaves its progress behind for the next attempt
+            if (!resumable) {
+                Files.deleteIfExists(stateFile);
+            }
+        }
+    }
+
+    /**
+     * @return how many segments of at least {@link #MIN_SEGMENT_SIZE} a download of {@code length} bytes is split into
+     */
+    static int segments(long length, int segments) {
+        return (int) Math.max(1, Math.min(segments, length / MIN_SEGMENT_SIZE));
+    }
+
+    private void fetch(URL url, String etag, FileChannel channel, Progress progress, int index) throws IOException {
+        IOException failure = null;
+        for (int attempt = 0; attempt <= RETRIES && !progress.isComplete(index); attempt++) {
+            try {
+                final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+                connection.setRequestProperty("Range", "bytes=" + progress.position(index) + "-" + progress.end(index));
+                if (etag != null) {
+                    connection.setRequestProperty("If-Range", etag);
+                }
+                if (connection.getResponseCode() != HttpURLConnection.HTTP_PARTIAL) {
+                    connection.disconnect();
+                    throw new IOException("Range request for " + url + " answered with HTTP " + connection.getResponseCode());
+                }
+                try (InputStream in = connection.getInputStream()) {
+                    final byte[] buffer = new byte[64 * 1024];
+                    int read;
+                    while (!progress.isComplete(index) && (read = in.read(buffer)) != -1) {
+                        long position = progress.position(index);
+                        final ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, (int) Math.min(read, progress.end(index) + 1 - position));
+                        while (bytes.hasRemaining()) {
+                            position += channel.write(bytes, position);
+                        }
+                        progress.advance(index, position);
+                    }
+                }
+                failure = null;
+            } catch (IOException e) {
+                failure = e;
+                retries.incrementAndGet();
+                progress.save();
+                getLog().debug("Segment " + index + " of " + url + " interrupted, resuming at " + progress.position(index), e);
+                if (attempt == RETRIES) {
+                    break;
+                }
+                try {
+                    Thread.sleep(200L << attempt);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(interrupted);
+                }
+            }
+        }
+        if (progress.isComplete(index) && getLog().isDebugEnabled()) {
+            getLog().debug("Segment " + index + " of " + url + " complete");
+        }
+        if (!progress.isComplete(index)) {
+            throw Objects.requireNonNullElseGet(failure, () -> new IOException("Segment " + index + " of " + url + " incomplete"));
+        }
+    }
+
+    private String stream(URL url, Path target) throws IOException {
+        final MessageDigest digest = Checksums.digest("SHA-256");
+        try (InputStream in = new DigestInputStream(url.openStream(), digest)) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return Checksums.hex(digest);
+    }
+
+    /**
+     * @return the segment requests retried so far by this downloader
+     */
+    public int getRetries() {
+        return retries.get();
+    }
+
+    public Log getLog() {
+        return log;
+    }
+
+    static final class Progress {
+        private final Path file;
+        private final URL url;
+        private final String etag;
+        private final long length;
+        private final long[] starts;
+        private final long[] ends;
+        private final AtomicLongArray positions;
+        private final AtomicLongArray saved;
+
+        Progress(Path file, URL url, String etag, long length, int count) {
+            this.file = file;
+            this.url = url;
+            this.etag = etag;
+            this.length = length;
+            this.starts = new long[count];
+            this.ends = new long[count];
+            this.positions = new AtomicLongArray(count);
+            this.saved = new AtomicLongArray(count);
+            final long size = length / count;
+            for (int i = 0; i < count; i++) {
+                starts[i] = i * size;
+                ends[i] = i == count - 1 ? length - 1 : (i + 1) * size - 1;
+                positions.set(i, starts[i]);
+                saved.set(i, starts[i]);
+            }
+        }
+
+        static Progress load(Path file, URL url, String etag, long length) {
+            if (!Files.exists(file)) {
+                return null;
+            }
+            final Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+                if (!url.toString().equals(properties.getProperty("url"))
+                        || !Objects.equals(etag, properties.getProperty("etag"))
+                        || length != Long.parseLong(properties.getProperty("length"))) {
+                    return null;
+                }
+                final int count = Integer.parseInt(properties.getProperty("segments"));
+                final Progress progress = new Progress(file, url, etag, length, count);
+                for (int i = 0; i < count; i++) {
+                    final String[] segment = properties.getProperty("segment." + i).split(",");
+                    progress.starts[i] = Long.parseLong(segment[0]);
+                    progress.ends[i] = Long.parseLong(segment[1]);
+                    progress.positions.set(i, Long.parseLong(segment[2]));
+                    progress.saved.set(i, progress.positions.get(i));
+                }
+                return progress;
+            } catch (IOException | RuntimeException e) {
+                return null;
+            }
+        }
+
+        int count() {
+            return starts.length;
+        }
+
+        long position(int index) {
+            return positions.get(index);
+        }
+
+        long end(int index) {
+            return ends[index];
+        }
+
+        boolean isComplete(int index) {
+            return positions.get(index) > ends[index];
+        }
+
+        boolean isComplete() {
+            for (int i = 0; i < count(); i++) {
+                if (!isComplete(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        long completed() {
+            long completed = 0;
+            for (int i = 0; i < count(); i++) {
+                completed += positions.get(i) - starts[i];
+            }
+            return completed;
+        }
+
+        void advance(int index, long position) throws IOException {
+            positions.set(index, position);
+            if (position - saved.get(index) >= SAVE_INTERVAL) {
+                save();
+            }
+        }
+
+        synchronized void save() throws IOException {
+            final Properties properties = new Properties();
+            properties.setProperty("url", url.toString());
+            if (etag != null) {
+                properties.setProperty("etag", etag);
+            }
+            properties.setProperty("length", String.valueOf(length));
+            properties.setProperty("segments", String.valueOf(count()));
+            for (int i = 0; i < count(); i++) {
+                final long position = positions.get(i);
+                properties.setProperty("segment." + i, starts[i] + "," + ends[i] + "," + position);
+                saved.set(i, position);
+            }
+            final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                properties.store(out, "Segmented download progress");
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package de.aethos.util;
 import nl.vv32.rcon.Rcon;
 import org.apache.maven.plugin.logging.Log;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -12,15 +13,31 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Properties;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
-public class ServerController {
-
+/**
+ * Talks to the server over RCON. The session is opened on first use, kept open and reopened once when a command fails
+ * on a dropped connection; {@code server.properties} is only parsed again when the file changes.
+ */
+public class ServerController implements Closeable {
+    private static final int BUFFER_CAPACITY = 16 * 1024;
 
     private final Path dir;
     private final Log log;
     private final Path propertiesFile;
+    private Properties properties;
+    private String propertiesStamp;
+    private Rcon rcon;
 
     public ServerController(Path dir, Log log) {
         this.dir = dir;
@@ -30,29 +47,93 @@ public class ServerController {
 
 
     public void setup() {
+        setup(25575);
+    }
+
+    public synchronized void setup(int rconPort) {
         try {
             final Properties properties = readProperties();
             properties.setProperty("enable-rcon", "true");
-            properties.setProperty("rcon.port", "25575");
+            properties.setProperty("rcon.port", String.valueOf(rconPort));
             properties.setProperty("rcon.password", Password.generateRandom16());
 
             try (OutputStream output = Files.newOutputStream(propertiesFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
                 properties.store(output, "Updated by RConSetup");
                 log.info("RCON enabled and password set in server.properties.");
             }
+            propertiesStamp = null;
+            disconnect();
         } catch (IOException e) {
             log.error("Error updating server.properties", e);
         }
     }
 
-    public void stop() {
+    public synchronized void setProperties(Map<String, String> values) throws IOException {
+        final Properties properties = readProperties();
+        properties.putAll(values);
+        try (OutputStream output = Files.newOutputStream(propertiesFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            properties.store(output, "Updated by Aethos");
+        }
+        propertiesStamp = null;
+    }
+
+    public synchronized void stop() {
         sendCommand("stop");
+        disconnect();
+    }
+
+    /**
+     * Stops the server over RCON and waits for {@code process} to exit, destroying it once {@code deadline} passed.
+     *
+     * @return true if the server stopped gracefully
+     */
+    public boolean shutdown(ProcessHandle process, Duration deadline) {
+        if (!process.isAlive()) {
+            return true;
+        }
+        stop();
+        try {
+            process.onExit().get(deadline.toMillis(), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException | ExecutionException e) {
+            log.warn("Server " + process.pid() + " did not stop within " + deadline.toSeconds() + "s, destroying it");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        process.destroy();
+        try {
+            process.onExit().get(10, TimeUnit.SECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            process.destroyForcibly();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+        }
+        return false;
     }
 
     public void reload() {
         sendCommand("reload confirm");
     }
 
+    /**
+     * Reloads only the plugin in {@code jar} through PlugMan if it is installed, every plugin otherwise.
+     */
+    public void reload(Path jar) {
+        try {
+            final Optional<String> name = PluginIndex.inspect(jar).map(PluginMetadata::name);
+            final PluginIndex index = new PluginIndex(dir, log);
+            index.refresh();
+            if (name.isPresent() && (index.find("PlugManX").isPresent() || index.find("PlugMan").isPresent())) {
+                sendCommand("plugman reload " + name.get());
+                return;
+            }
+        } catch (IOException e) {
+            log.debug("Falling back to a full reload", e);
+        }
+        reload();
+    }
+
     public String readPassword() {
         return readProperties().getProperty("rcon.password");
     }
@@ -61,24 +142,94 @@ public class ServerController {
         return Integer.parseInt(readProperties().getProperty("rcon.port"));
     }
 
-    public void sendCommand(String str) {
-        try (Rcon rcon = Rcon.newBuilder()
-                .withChannel(SocketChannel.open(
-                        new InetSocketAddress("localhost", readPort())))
-                .withCharset(StandardCharsets.UTF_8)
-                .withReadBufferCapacity(1234)
-                .withWriteBufferCapacity(1234)
-                .build()) {
+    public String readProperty(String key, String defaultValue) {
+        return readProperties().getProperty(key, defaultValue);
+    }
 
-            rcon.authenticate(readPassword());
-            rcon.sendCommand(str);
-            rcon.close();
+    public synchronized void sendCommand(String str) {
+        try {
+            execute(str);
             log.info("Sent " + str + "  command to PaperMC server.");
         } catch (IOException e) {
             log.error("Failed to send " + str + " command to PaperMC server.", e);
         }
     }
 
+    /**
+     * Sends the commands one after another over the open session.
+     *
+     * @return the response of each command, in order
+     */
+    public synchronized List<String> sendCommands(List<String> commands) throws IOException {
+        final List<String> responses = new ArrayList<>(commands.size());
+        for (String command : commands) {
+            responses.add(execute(command));
+        }
+        log.info("Sent " + commands.size() + " commands to PaperMC server.");
+        return responses;
+    }
+
+    /**
+     * Sends a command and returns its response. A command failing on a stale session is sent again once over a new
+     * one, so a command whose response got lost with the connection may run twice.
+     */
+    public synchronized String execute(String command) throws IOException {
+        try {
+            return session().sendCommand(command);
+        } catch (IOException e) {
+            disconnect();
+            return session().sendCommand(command);
+        }
+    }
+
+    /**
+     * Reads a command file: one command per line, blank lines and {@code #} comments skipped, a leading slash dropped.
+     */
+    public static List<String> readCommands(Path file) throws IOException {
+        final List<String> commands = new ArrayList<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            final String command = line.strip();
+            if (!command.isEmpty() && !command.startsWith("#")) {
+                commands.add(command.startsWith("/") ? command.substring(1) : command);
+            }
+        }
+        return commands;
+    }
+
+    private Rcon session() throws IOException {
+        if (rcon == null) {
+            final Rcon opened = Rcon.newBuilder()
+                    .withChannel(SocketChannel.open(
+                            new InetSocketAddress("localhost", readPort())))
+                    .withCharset(StandardCharsets.UTF_8)
+                    .withReadBufferCapacity(BUFFER_CAPACITY)
+                    .withWriteBufferCapacity(BUFFER_CAPACITY)
+                    .build();
+            if (!opened.authenticate(readPassword())) {
+                opened.close();
+                throw new IOException("RCON authentication failed");
+            }
+            rcon = opened;
+        }
+        return rcon;
+    }
+
+    private void disconnect() {
+        if (rcon != null) {
+            try {
+                rcon.close();
+            } catch (IOException e) {
+                log.debug(e);
+            }
+            rcon = null;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        disconnect();
+    }
+
     // Methode, um die Standardwerte der server.properties-Datei zu erstellen
     public void createDefaultProperties() {
         Path propertiesFile = dir.resolve("server.properties");
@@ -102,15 +253,22 @@ public class ServerController {
         }
     }
 
-    private Properties readProperties() {
-        final Path propertiesFile = dir.resolve("server.properties");
-        Properties properties = new Properties();
+    private synchronized Properties readProperties() {
         try {
             if (Files.exists(propertiesFile)) {
-                try (InputStream input = Files.newInputStream(propertiesFile)) {
-                    properties.load(input);
-                    return properties;
+                final BasicFileAttributes attributes = Files.readAttributes(propertiesFile, BasicFileAttributes.class);
+                final String stamp = attributes.size() + ":" + attributes.lastModifiedTime().toMillis();
+                if (!stamp.equals(propertiesStamp)) {
+                    final Properties loaded = new Properties();
+                    try (InputStream input = Files.newInputStream(propertiesFile)) {
+                        loaded.load(input);
+                    }
+                    properties = loaded;
+                    propertiesStamp = stamp;
                 }
+                final Properties copy = new Properties();
+                copy.putAll(properties);
+                return copy;
             } else {
                 log.warn("server.properties file does not exist at: " + propertiesFile);
                 throw new IllegalStateException("server.properties file does not exist at: " + propertiesFile);
@@ -120,19 +278,16 @@ public class ServerController {
         }
     }
 
-    public boolean isRunning() {
-        try (Rcon rcon = Rcon.newBuilder()
-                .withChannel(SocketChannel.open(
-                        new InetSocketAddress("localhost", readPort())))
-                .withCharset(StandardCharsets.UTF_8)
-                .withReadBufferCapacity(1234)
-                .withWriteBufferCapacity(1234)
-                .build()) {
-            return rcon.authenticate(readPassword());
+    public synchronized boolean isRunning() {
+        if (!Files.exists(propertiesFile) || readProperties().getProperty("rcon.port") == null) {
+            return false;
+        }
+        try {
+            execute("list");
+            return true;
         } catch (IOException exception) {
             return false;
         }
-
     }
 
     private static final class Password {
@@ -0,0 +1,106 @@
+package de.aethos.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A running server whose console output is pumped through a consumer. The server counts as ready once Paper (or
+ * Velocity) prints its {@code Done (x.xxxs)!} line.
+ */
+public class ServerProcess {
+    private static final Pattern DONE = Pattern.compile("Done \\((\\d+[.,]\\d+)s\\)!");
+    private final Process process;
+    private final long started;
+    private final CompletableFuture<Duration> ready = new CompletableFuture<>();
+    private volatile double reportedStartup = Double.NaN;
+
+    private ServerProcess(Process process, long started) {
+        this.process = process;
+        this.started = started;
+    }
+
+    public static List<String> command(List<String> jvmArguments, Path jar, boolean gui) {
+        final List<String> command = new ArrayList<>();
+        command.add("java");
+        command.addAll(jvmArguments);
+        command.add("-jar");
+        command.add(jar.toAbsolutePath().toString());
+        if (!gui) {
+            command.add("nogui");
+        }
+        return command;
+    }
+
+    public static ServerProcess start(ProcessBuilder builder, Consumer<String> console) throws IOException {
+        builder.redirectErrorStream(true);
+        builder.redirectOutput(ProcessBuilder.Redirect.PIPE);
+        final long started = System.nanoTime();
+        final ServerProcess server = new ServerProcess(builder.start(), started);
+        final Thread pump = new Thread(() -> server.pump(console), "aethos-console-" + server.process.pid());
+        pump.setDaemon(true);
+        pump.start();
+        return server;
+    }
+
+    private void pump(Consumer<String> console) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                console.accept(line);
+                if (!ready.isDone()) {
+                    final Matcher matcher = DONE.matcher(line);
+                    if (matcher.find()) {
+                        reportedStartup = Double.parseDouble(matcher.group(1).replace(',', '.'));
+                        ready.complete(Duration.ofNanos(System.nanoTime() - started));
+                    }
+                }
+            }
+        } catch (IOException ignored) {
+            // the stream closes with the process
+        } finally {
+            ready.completeExceptionally(new IOException("Server exited before it was ready"));
+        }
+    }
+
+    /**
+     * @return wall time from process start until the server reported it is done
+     */
+    public Duration awaitReady(Duration timeout) throws IOException, TimeoutException {
+        try {
+            return ready.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the server", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+    }
+
+    public CompletableFuture<Duration> getReady() {
+        return ready;
+    }
+
+    /**
+     * @return startup seconds as printed in the {@code Done} line, NaN before the server is ready
+     */
+    public double getReportedStartup() {
+        return reportedStartup;
+    }
+
+    public Process getProcess() {
+        return process;
+    }
+}
@@ -0,0 +1,102 @@
+package de.aethos.util;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * A server started in the background, kept in {@code .aethos/server.json} so the stop goal finds it again. The start
+ * time guards against a recycled PID.
+ */
+public class ServerState {
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private long pid;
+    private long started;
+    private String host;
+    private int rconPort;
+    private String rconPassword;
+    private long startupMillis;
+
+    public ServerState() {
+    }
+
+    public ServerState(ProcessHandle process, String host, int rconPort, String rconPassword) {
+        this.pid = process.pid();
+        this.started = process.info().startInstant().map(Instant::toEpochMilli).orElse(0L);
+        this.host = host;
+        this.rconPort = rconPort;
+        this.rconPassword = rconPassword;
+    }
+
+    public static Path file(Path dir) {
+        return dir.resolve(".aethos").resolve("server.json");
+    }
+
+    public static Optional<ServerState> read(Path dir) {
+        final Path file = file(dir);
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file)) {
+                return Optional.ofNullable(GSON.fromJson(reader, ServerState.class));
+            } catch (IOException | JsonParseException ignored) {
+                // a broken state cannot name a process to stop
+            }
+        }
+        return Optional.empty();
+    }
+
+    public static void delete(Path dir) throws IOException {
+        Files.deleteIfExists(file(dir));
+    }
+
+    /**
+     * @return the recorded process if it is still alive and was not replaced by another one with the same PID
+     */
+    public Optional<ProcessHandle> process() {
+        return ProcessHandle.of(pid)
+                .filter(ProcessHandle::isAlive)
+                .filter(process -> started == 0 || process.info().startInstant().map(instant -> instant.toEpochMilli() == started).orElse(true));
+    }
+
+    public void write(Path dir) throws IOException {
+        final Path file = file(dir);
+        Files.createDirectories(file.getParent());
+        final Path temp = file.resolveSibling("server.json.tmp");
+        try (Writer writer = Files.newBufferedWriter(temp)) {
+            GSON.toJson(this, writer);
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public long getPid() {
+        return pid;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getRconPort() {
+        return rconPort;
+    }
+
+    public String getRconPassword() {
+        return rconPassword;
+    }
+
+    public long getStartupMillis() {
+        return startupMillis;
+    }
+
+    public void setStartupMillis(long startupMillis) {
+        this.startupMillis = startupMillis;
+    }
+}
@@ -0,0 +1,23 @@
+package de.aethos.util;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Min, median and nearest-rank 95th percentile of a series of measurements.
+ */
+public record Summary(int count, double min, double median, double p95, double max) {
+
+    public static Summary of(Collection<Double> values) {
+        final List<Double> sorted = values.stream().filter(value -> !value.isNaN()).sorted().toList();
+        if (sorted.isEmpty()) {
+            return new Summary(0, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+        }
+        return new Summary(sorted.size(), sorted.get(0), percentile(sorted, 50), percentile(sorted, 95), sorted.get(sorted.size() - 1));
+    }
+
+    public static double percentile(List<Double> sorted, double percentile) {
+        final int rank = (int) Math.ceil(percentile / 100 * sorted.size());
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, rank - 1)));
+    }
+}
@@ -0,0 +1,72 @@
+package de.aethos.util;
+
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads Paper's {@code tps} and {@code mspt} commands, and optionally the entity and chunk totals, over the controller's
+ * RCON session. Values a server does not report are NaN or -1.
+ */
+public class TickSampler {
+    private static final Pattern COLOR = Pattern.compile("\u00A7[0-9a-fk-orx]", Pattern.CASE_INSENSITIVE);
+    private static final Pattern NUMBER = Pattern.compile("\\d+(?:\\.\\d+)?");
+    private static final Pattern MSPT = Pattern.compile("(\\d+(?:\\.\\d+)?)/(\\d+(?:\\.\\d+)?)/(\\d+(?:\\.\\d+)?)");
+    private static final Pattern TOTAL = Pattern.compile("Total(?: Entities)?:?\\s*(\\d+)");
+    private final ServerController controller;
+    private final boolean counts;
+    private final long started = System.nanoTime();
+
+    public TickSampler(ServerController controller, boolean counts) {
+        this.controller = controller;
+        this.counts = counts;
+    }
+
+    public Sample sample() throws IOException {
+        final long elapsed = (System.nanoTime() - started) / 1_000_000;
+        final double tps = tps(controller.execute("tps"));
+        final double[] mspt = mspt(controller.execute("mspt"));
+        final int entities = counts ? total(controller.execute("paper entity list")) : -1;
+        final int chunks = counts ? total(controller.execute("paper chunkinfo")) : -1;
+        return new Sample(elapsed, tps, mspt[0], mspt[1], mspt[2], entities, chunks);
+    }
+
+    /**
+     * @return the TPS of the last minute, the first value Paper prints
+     */
+    public static double tps(String response) {
+        final String plain = strip(response);
+        final Matcher matcher = NUMBER.matcher(plain.substring(plain.indexOf(':') + 1));
+        return matcher.find() ? Double.parseDouble(matcher.group()) : Double.NaN;
+    }
+
+    /**
+     * @return average, minimum and maximum tick time of the last five seconds, the first triple Paper prints
+     */
+    public static double[] mspt(String response) {
+        final Matcher matcher = MSPT.matcher(strip(response));
+        if (!matcher.find()) {
+            return new double[]{Double.NaN, Double.NaN, Double.NaN};
+        }
+        return new double[]{Double.parseDouble(matcher.group(1)), Double.parseDouble(matcher.group(2)), Double.parseDouble(matcher.group(3))};
+    }
+
+    /**
+     * @return the last total in the response, which Paper prints for all worlds together
+     */
+    public static int total(String response) {
+        final Matcher matcher = TOTAL.matcher(strip(response));
+        int total = -1;
+        while (matcher.find()) {
+            total = Integer.parseInt(matcher.group(1));
+        }
+        return total;
+    }
+
+    private static String strip(String response) {
+        return COLOR.matcher(response).replaceAll("");
+    }
+
+    public record Sample(long elapsedMillis, double tps, double msptAverage, double msptMin, double msptMax, int entities, int chunks) {
+    }
+}
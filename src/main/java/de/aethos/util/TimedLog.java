@@ -2,11 +2,117 @@ package de.aethos.util;
 
 import org.apache.maven.plugin.logging.Log;
 
-import java.text.DateFormat;
-import java.util.Date;
-
-public record TimedLog(Log log, DateFormat format) implements Log {
-
+import java.lang.ref.WeakReference;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prefixes every line with the time of day. Thread safe; the prefix is formatted once per second and not at all for
+ * disabled levels. An asynchronous log only takes the timestamp on the calling thread and leaves writing to a single
+ * background thread, which keeps the order of all lines; call {@link #flush()} before the goal returns.
+ */
+public final class TimedLog implements Log {
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("'['HH:mm:ss'] '");
+    private static final BlockingQueue<Runnable> QUEUE = new LinkedBlockingQueue<>();
+    private static volatile Stamp stamp = new Stamp(Long.MIN_VALUE, "");
+    // weak both ways: the delegate is the key, and the cached log holding it must not keep it reachable
+    private static final Map<Log, WeakReference<TimedLog>> SYNCHRONOUS = new WeakHashMap<>();
+    private static final Map<Log, WeakReference<TimedLog>> ASYNCHRONOUS = new WeakHashMap<>();
+    private static Thread writer;
+
+    private final Log log;
+    private final boolean async;
+
+    private TimedLog(Log log, boolean async) {
+        this.log = log;
+        this.async = async;
+    }
+
+    /**
+     * @return the log for {@code log}, one per delegate, so mojos of parallel or multi-module builds each keep theirs
+     */
+    public static TimedLog of(Log log) {
+        return cached(SYNCHRONOUS, log, false);
+    }
+
+    public static TimedLog asynchronous(Log log) {
+        startWriter();
+        return cached(ASYNCHRONOUS, log, true);
+    }
+
+    private static TimedLog cached(Map<Log, WeakReference<TimedLog>> cache, Log log, boolean async) {
+        synchronized (cache) {
+            final WeakReference<TimedLog> reference = cache.get(log);
+            final TimedLog cached = reference != null ? reference.get() : null;
+            if (cached != null) {
+                return cached;
+            }
+            final TimedLog created = new TimedLog(log, async);
+            cache.put(log, new WeakReference<>(created));
+            return created;
+        }
+    }
+
+    private static synchronized void startWriter() {
+        if (writer != null) {
+            return;
+        }
+        writer = new Thread(() -> {
+            while (true) {
+                try {
+                    QUEUE.take().run();
+                } catch (InterruptedException e) {
+                    return;
+                } catch (RuntimeException e) {
+                    // a failing delegate must not stop the lines queued behind it
+                }
+            }
+        }, "aethos-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Waits until every line logged so far is written.
+     */
+    public void flush() {
+        if (!async) {
+            return;
+        }
+        final CountDownLatch written = new CountDownLatch(1);
+        QUEUE.add(written::countDown);
+        try {
+            written.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String prefix() {
+        final long second = System.currentTimeMillis() / 1000;
+        Stamp current = stamp;
+        if (current.second() != second) {
+            current = new Stamp(second, FORMAT.format(LocalTime.ofInstant(Instant.ofEpochSecond(second), ZoneId.systemDefault())));
+            stamp = current;
+        }
+        return current.prefix();
+    }
+
+    private void write(Runnable line) {
+        if (async) {
+            QUEUE.add(line);
+        } else {
+            line.run();
+        }
+    }
 
     @Override
     public boolean isDebugEnabled() {
@@ -15,17 +121,25 @@ public record TimedLog(Log log, DateFormat format) implements Log {
 
     @Override
     public void debug(CharSequence content) {
-        log.debug(format.format(new Date()) + content);
+        if (log.isDebugEnabled()) {
+            final String line = prefix() + content;
+            write(() -> log.debug(line));
+        }
     }
 
     @Override
     public void debug(CharSequence content, Throwable error) {
-        log.debug(format.format(new Date()) + content, error);
+        if (log.isDebugEnabled()) {
+            final String line = prefix() + content;
+            write(() -> log.debug(line, error));
+        }
     }
 
     @Override
     public void debug(Throwable error) {
-        log.debug(error);
+        if (log.isDebugEnabled()) {
+            write(() -> log.debug(error));
+        }
     }
 
     @Override
@@ -35,17 +149,25 @@ public record TimedLog(Log log, DateFormat format) implements Log {
 
     @Override
     public void info(CharSequence content) {
-        log.info(format.format(new Date()) + content);
+        if (log.isInfoEnabled()) {
+            final String line = prefix() + content;
+            write(() -> log.info(line));
+        }
     }
 
     @Override
     public void info(CharSequence content, Throwable error) {
-        log.info(format.format(new Date()) + content, error);
+        if (log.isInfoEnabled()) {
+            final String line = prefix() + content;
+            write(() -> log.info(line, error));
+        }
     }
 
     @Override
     public void info(Throwable error) {
-        log.info(error);
+        if (log.isInfoEnabled()) {
+            write(() -> log.info(error));
+        }
     }
 
     @Override
@@ -55,17 +177,25 @@ public record TimedLog(Log log, DateFormat format) implements Log {
 
     @Override
     public void warn(CharSequence content) {
-        log.warn(format.format(new Date()) + content);
+        if (log.isWarnEnabled()) {
+            final String line = prefix() + content;
+            write(() -> log.warn(line));
+        }
     }
 
     @Override
     public void warn(CharSequence content, Throwable error) {
-        log.warn(format.format(new Date()) + content, error);
+        if (log.isWarnEnabled()) {
+            final String line = prefix() + content;
+            write(() -> log.warn(line, error));
+        }
     }
 
     @Override
     public void warn(Throwable error) {
-        log.warn(error);
+        if (log.isWarnEnabled()) {
+            write(() -> log.warn(error));
+        }
     }
 
     @Override
@@ -75,16 +205,27 @@ public record TimedLog(Log log, DateFormat format) implements Log {
 
     @Override
     public void error(CharSequence content) {
-        log.error(format.format(new Date()) + content);
+        if (log.isErrorEnabled()) {
+            final String line = prefix() + content;
+            write(() -> log.error(line));
+        }
     }
 
     @Override
     public void error(CharSequence content, Throwable error) {
-        log.error(format.format(new Date()) + content, error);
+        if (log.isErrorEnabled()) {
+            final String line = prefix() + content;
+            write(() -> log.error(line, error));
+        }
     }
 
     @Override
     public void error(Throwable error) {
-        log.error(error);
+        if (log.isErrorEnabled()) {
+            write(() -> log.error(error));
+        }
+    }
+
+    private record Stamp(long second, String prefix) {
     }
 }
@@ -0,0 +1,153 @@
+package de.aethos.util;
+
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A trash directory next to the server, {@code .<server>.trash}. Moving a directory there is a single rename on the same
+ * file system, so it disappears from the server at once; the contents are deleted later by a parallel walk.
+ */
+public class Trash {
+    private final Path dir;
+    private final Log log;
+
+    public Trash(Path server, Log log) {
+        final Path absolute = server.toAbsolutePath().normalize();
+        this.dir = absolute.resolveSibling("." + absolute.getFileName() + ".trash");
+        this.log = log;
+    }
+
+    /**
+     * Renames {@code path} into the trash, or deletes it right away if the trash is on another file system.
+     */
+    public void move(Path path) throws IOException {
+        if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        Files.createDirectories(dir);
+        final Path target = dir.resolve(System.nanoTime() + "-" + path.getFileName());
+        try {
+            Files.move(path, target, StandardCopyOption.ATOMIC_MOVE);
+            getLog().debug("Moved " + path + " to " + target);
+        } catch (AtomicMoveNotSupportedException e) {
+            getLog().debug("Cannot rename " + path + " into " + dir + ", deleting it in place");
+            delete(path);
+        }
+    }
+
+    public boolean isEmpty() throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return true;
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+            return !entries.iterator().hasNext();
+        }
+    }
+
+    /**
+     * @return the number of files deleted
+     */
+    public long purge() throws IOException {
+        return delete(dir);
+    }
+
+    /**
+     * Purges the trash on a daemon thread. Whatever is left when Maven exits is purged on the next run.
+     */
+    public Thread purgeInBackground() {
+        final Thread thread = new Thread(() -> {
+            try {
+                final long started = System.nanoTime();
+                final long deleted = purge();
+                getLog().debug("Purged " + deleted + " files from " + dir + " in " + (System.nanoTime() - started) / 1_000_000 + " ms");
+            } catch (IOException e) {
+                getLog().debug("Could not purge " + dir, e);
+            }
+        }, "aethos-trash");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Deletes {@code path} and everything below it, walking sibling directories in parallel.
+     *
+     * @return the number of files deleted
+     */
+    public static long delete(Path path) throws IOException {
+        if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+            return 0;
+        }
+        final AtomicLong deleted = new AtomicLong();
+        final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            pool.invoke(new DeleteTask(path, deleted));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+        return deleted.get();
+    }
+
+    public Path getDir() {
+        return dir;
+    }
+
+    public Log getLog() {
+        return log;
+    }
+
+    private static final class DeleteTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final transient Path path;
+        private final AtomicLong deleted;
+
+        private DeleteTask(Path path, AtomicLong deleted) {
+            this.path = path;
+            this.deleted = deleted;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                    final List<DeleteTask> children = new ArrayList<>();
+                    try (DirectoryStream<Path> entries = Files.newDirectoryStream(path)) {
+                        for (Path entry : entries) {
+                            if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                                children.add(new DeleteTask(entry, deleted));
+                            } else {
+                                Files.deleteIfExists(entry);
+                                deleted.incrementAndGet();
+                            }
+                        }
+                    }
+                    invokeAll(children);
+                    Files.deleteIfExists(path);
+                } else {
+                    Files.deleteIfExists(path);
+                    deleted.incrementAndGet();
+                }
+            } catch (NoSuchFileException ignored) {
+                // deleted concurrently, e.g. by another purge of the same trash
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package de.aethos.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the configuration for Velocity's modern player info forwarding: {@code velocity.toml} and
+ * {@code forwarding.secret} on the proxy and the {@code proxies.velocity} block of {@code config/paper-global.yml} on
+ * each backend. Settings not written here are filled in with defaults by the servers on first start.
+ */
+public final class VelocityForwarding {
+
+    private VelocityForwarding() {
+    }
+
+    public static String generateSecret() {
+        final byte[] secret = new byte[24];
+        new SecureRandom().nextBytes(secret);
+        return HexFormat.of().formatHex(secret);
+    }
+
+    public static void configureProxy(Path proxy, int port, Map<String, Integer> backends, String secret, boolean onlineMode) throws IOException {
+        write(proxy.resolve("forwarding.secret"), secret);
+        final StringBuilder toml = new StringBuilder();
+        toml.append("config-version = \"2.7\"\n");
+        toml.append("bind = \"0.0.0.0:").append(port).append("\"\n");
+        toml.append("motd = \"<#09add3>Aethos test network\"\n");
+        toml.append("online-mode = ").append(onlineMode).append('\n');
+        toml.append("player-info-forwarding-mode = \"modern\"\n");
+        toml.append("forwarding-secret-file = \"forwarding.secret\"\n");
+        toml.append("\n[servers]\n");
+        backends.forEach((name, backendPort) -> toml.append(name).append(" = \"127.0.0.1:").append(backendPort).append("\"\n"));
+        toml.append("try = [").append(String.join(", ", backends.keySet().stream().map(name -> "\"" + name + "\"").toList())).append("]\n");
+        toml.append("\n[forced-hosts]\n");
+        write(proxy.resolve("velocity.toml"), toml.toString());
+    }
+
+    /**
+     * Enables Velocity forwarding in {@code config/paper-global.yml}, keeping everything else in an existing file.
+     * {@code onlineMode} has to match the proxy's, or the backend and the proxy disagree about player identities.
+     */
+    public static void configureBackend(Path backend, String secret, boolean onlineMode) throws IOException {
+        final Path file = backend.resolve("config").resolve("paper-global.yml");
+        final List<String> velocity = List.of("enabled: true", "online-mode: " + onlineMode, "secret: '" + secret + "'");
+        if (!Files.exists(file)) {
+            final StringBuilder yaml = new StringBuilder("proxies:\n  velocity:\n");
+            velocity.forEach(line -> yaml.append("    ").append(line).append('\n'));
+            write(file, yaml.toString());
+            return;
+        }
+        final List<String> lines = new ArrayList<>(Files.readAllLines(file, StandardCharsets.UTF_8));
+        int proxies = find(lines, 0, lines.size(), 0, "proxies:");
+        if (proxies == -1) {
+            lines.add("proxies:");
+            proxies = lines.size() - 1;
+        }
+        final int proxiesEnd = end(lines, proxies, 0);
+        int block = find(lines, proxies + 1, proxiesEnd, 2, "velocity:");
+        if (block == -1) {
+            lines.add(proxiesEnd, "  velocity:");
+            block = proxiesEnd;
+        }
+        for (String setting : velocity) {
+            final String key = setting.substring(0, setting.indexOf(':') + 1);
+            final int existing = find(lines, block + 1, end(lines, block, 2), 4, key);
+            if (existing == -1) {
+                lines.add(block + 1, "    " + setting);
+            } else {
+                lines.set(existing, "    " + setting);
+            }
+        }
+        write(file, String.join("\n", lines) + "\n");
+    }
+
+    private static int find(List<String> lines, int from, int to, int indent, String key) {
+        for (int i = from; i < to; i++) {
+            if (indent(lines.get(i)) == indent && lines.get(i).strip().startsWith(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the index after the last line nested below {@code start}
+     */
+    private static int end(List<String> lines, int start, int indent) {
+        int end = start + 1;
+        while (end < lines.size() && (lines.get(end).isBlank() || indent(lines.get(end)) > indent)) {
+            end++;
+        }
+        return end;
+    }
+
+    private static int indent(String line) {
+        return line.length() - line.stripLeading().length();
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(temp, content, StandardCharsets.UTF_8);
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,204 @@
+package de.aethos.util;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * A named copy of a server's worlds and configuration in {@code .aethos/snapshots/<name>/}. The store is only ever
+ * written by this class, so a new snapshot hard links every file unchanged since the previous one. Restoring copies
+ * back only files whose size or modification time differ from the snapshot and deletes files the snapshot does not
+ * know; the server's files are never linked to the store, since Minecraft rewrites region files in place.
+ */
+public class WorldSnapshot {
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final List<String> CONFIG = List.of("server.properties", "bukkit.yml", "spigot.yml", "commands.yml",
+            "permissions.yml", "help.yml", "ops.json", "whitelist.json", "banned-players.json", "banned-ips.json", "config");
+    private final Path server;
+    private final Path store;
+    private final Log log;
+
+    public WorldSnapshot(Path server, String name, Log log) {
+        this.server = server;
+        this.store = server.resolve(".aethos").resolve("snapshots").resolve(name);
+        this.log = log;
+    }
+
+    public boolean exists() {
+        return Files.exists(store.resolve("manifest.json"));
+    }
+
+    /**
+     * Captures every world (a directory with a {@code level.dat}), the server configuration and {@code includes}.
+     */
+    public void create(List<String> includes) throws IOException {
+        final Set<String> roots = new TreeSet<>(includes);
+        try (Stream<Path> children = Files.list(server)) {
+            children.filter(child -> Files.isRegularFile(child.resolve("level.dat")))
+                    .forEach(world -> roots.add(world.getFileName().toString()));
+        }
+        CONFIG.stream().filter(config -> Files.exists(server.resolve(config))).forEach(roots::add);
+        final Manifest previous = exists() ? read() : new Manifest();
+        final Manifest manifest = new Manifest();
+        manifest.roots.addAll(roots);
+        final Path temp = store.resolveSibling(store.getFileName() + ".tmp");
+        FileUtils.deleteDirectory(temp.toFile());
+        final AtomicInteger linked = new AtomicInteger();
+        final AtomicLong bytes = new AtomicLong();
+        final List<Path> files = files(roots);
+        parallel(files, file -> {
+            final String relative = server.relativize(file).toString();
+            final String stat = stat(file);
+            final Path target = temp.resolve("files").resolve(relative);
+            Files.createDirectories(target.getParent());
+            if (stat.equals(previous.files.get(relative))) {
+                ArtifactCache.link(store.resolve("files").resolve(relative), target);
+                linked.incrementAndGet();
+            } else {
+                Files.copy(file, target, StandardCopyOption.COPY_ATTRIBUTES);
+                bytes.addAndGet(Files.size(file));
+            }
+            synchronized (manifest) {
+                manifest.files.put(relative, stat);
+            }
+        });
+        try (Writer writer = Files.newBufferedWriter(temp.resolve("manifest.json"))) {
+            GSON.toJson(manifest, writer);
+        }
+        FileUtils.deleteDirectory(store.toFile());
+        Files.move(temp, store, StandardCopyOption.ATOMIC_MOVE);
+        getLog().info("Snapshot " + store.getFileName() + ": " + files.size() + " files, " + linked + " unchanged, "
+                + bytes.get() / (1024 * 1024) + " MB copied");
+    }
+
+    /**
+     * Brings the captured roots back to the snapshot, touching only what changed since.
+     */
+    public void restore() throws IOException {
+        final Manifest manifest = read();
+        final AtomicInteger deleted = new AtomicInteger();
+        for (Path file : files(manifest.roots)) {
+            if (!manifest.files.containsKey(server.relativize(file).toString())) {
+                Files.delete(file);
+                deleted.incrementAndGet();
+            }
+        }
+        final AtomicInteger restored = new AtomicInteger();
+        final AtomicLong bytes = new AtomicLong();
+        parallel(new ArrayList<>(manifest.files.keySet()), relative -> {
+            final Path target = server.resolve(relative);
+            if (Files.isRegularFile(target) && stat(target).equals(manifest.files.get(relative))) {
+                return;
+            }
+            final Path source = store.resolve("files").resolve(relative);
+            Files.createDirectories(target.getParent());
+            final Path temp = target.resolveSibling(target.getFileName() + ".restore");
+            Files.copy(source, temp, StandardCopyOption.COPY_ATTRIBUTES, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            restored.incrementAndGet();
+            bytes.addAndGet(Files.size(source));
+        });
+        getLog().info("Restored " + restored + " of " + manifest.files.size() + " files (" + bytes.get() / (1024 * 1024)
+                + " MB), deleted " + deleted + " files not in snapshot " + store.getFileName());
+    }
+
+    private List<Path> files(Set<String> roots) throws IOException {
+        final List<Path> files = new ArrayList<>();
+        for (String root : roots) {
+            final Path path = server.resolve(root);
+            if (Files.isRegularFile(path)) {
+                files.add(path);
+            } else if (Files.isDirectory(path)) {
+                try (Stream<Path> walk = Files.walk(path)) {
+                    walk.filter(Files::isRegularFile)
+                            // the lock Minecraft holds on a world is no part of its state
+                            .filter(file -> !file.getFileName().toString().equals("session.lock"))
+                            .forEach(files::add);
+                }
+            }
+        }
+        files.sort(Comparator.naturalOrder());
+        return files;
+    }
+
+    private static String stat(Path file) throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        return attributes.size() + ":" + attributes.lastModifiedTime().toMillis();
+    }
+
+    private static <T> void parallel(List<T> items, FileTask<T> task) throws IOException {
+        final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (T item : items) {
+                futures.add(executor.submit(() -> {
+                    try {
+                        task.run(item);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof UncheckedIOException unchecked ? unchecked.getCause() : new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Manifest read() throws IOException {
+        try (Reader reader = Files.newBufferedReader(store.resolve("manifest.json"))) {
+            final Manifest manifest = GSON.fromJson(reader, Manifest.class);
+            if (manifest == null) {
+                throw new IOException("Empty snapshot manifest in " + store);
+            }
+            return manifest;
+        } catch (JsonParseException e) {
+            throw new IOException("Broken snapshot manifest in " + store, e);
+        }
+    }
+
+    public Log getLog() {
+        return log;
+    }
+
+    private interface FileTask<T> {
+        void run(T item) throws IOException;
+    }
+
+    private static final class Manifest {
+        private final Set<String> roots = new TreeSet<>();
+        private final Map<String, String> files = new TreeMap<>();
+    }
+}
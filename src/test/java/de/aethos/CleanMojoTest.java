@@ -0,0 +1,69 @@
+package de.aethos;
+
+import de.aethos.CleanMojo.Scope;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CleanMojoTest {
+
+    @TempDir
+    Path dir;
+    Path server;
+
+    @BeforeEach
+    void createServer() throws IOException {
+        server = Files.createDirectories(dir.resolve("server"));
+        for (String world : List.of("world", "world_nether")) {
+            Files.createDirectories(server.resolve(world));
+            Files.writeString(server.resolve(world).resolve("level.dat"), "level");
+        }
+        Files.createDirectories(server.resolve("config"));
+        Files.createDirectories(server.resolve("libraries"));
+        Files.writeString(server.resolve("paper.jar"), "paper");
+        Files.createDirectories(server.resolve("plugins").resolve("Example"));
+        Files.createDirectories(server.resolve("plugins").resolve(".paper-remapped"));
+        Files.writeString(server.resolve("plugins").resolve("example.jar"), "jar");
+        Files.createDirectories(server.resolve("logs"));
+        Files.createDirectories(server.resolve(".aethos"));
+        Files.writeString(server.resolve(".aethos").resolve("console.log"), "console");
+    }
+
+    @Test
+    void allSelectsServer() throws IOException {
+        assertEquals(List.of(server), CleanMojo.targets(server, List.of(Scope.ALL, Scope.WORLDS)));
+    }
+
+    @Test
+    void worldsSelectsDirectoriesWithLevelDat() throws IOException {
+        assertEquals(Set.of(server.resolve("world"), server.resolve("world_nether")), Set.copyOf(CleanMojo.targets(server, List.of(Scope.WORLDS))));
+    }
+
+    @Test
+    void pluginDataKeepsJarsAndDotDirectories() throws IOException {
+        assertEquals(List.of(server.resolve("plugins").resolve("Example")), CleanMojo.targets(server, List.of(Scope.PLUGIN_DATA)));
+    }
+
+    @Test
+    void logsSelectsExistingLogs() throws IOException {
+        assertEquals(List.of(server.resolve("logs"), server.resolve(".aethos").resolve("console.log")), CleanMojo.targets(server, List.of(Scope.LOGS)));
+    }
+
+    @Test
+    void scopesCombine() throws IOException {
+        assertEquals(4, CleanMojo.targets(server, List.of(Scope.WORLDS, Scope.LOGS)).size());
+    }
+
+    @Test
+    void missingServerHasNothingToClean() throws IOException {
+        assertEquals(List.of(), CleanMojo.targets(dir.resolve("missing"), List.of(Scope.WORLDS, Scope.PLUGIN_DATA, Scope.LOGS)));
+    }
+}
@@ -0,0 +1,155 @@
+package de.aethos.util;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArtifactCacheTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void storesBlobsByDigest() throws IOException {
+        final ArtifactCache cache = cache();
+        final Path jar = Files.writeString(dir.resolve("a.jar"), "abc");
+        cache.store("plugin/a:a:1.0", jar);
+        final Path blob = cache.lookup("plugin/a:a:1.0").orElseThrow();
+        assertEquals(Checksums.sha256(jar), blob.getFileName().toString());
+        assertEquals("abc", Files.readString(blob));
+        assertEquals(Optional.empty(), cache.lookup("plugin/a:a:2.0"));
+        assertEquals(Optional.empty(), cache.lookup(null));
+    }
+
+    @Test
+    void blobIsACopyOfTheStoredFile() throws IOException {
+        final ArtifactCache cache = cache();
+        final Path jar = Files.writeString(dir.resolve("a.jar"), "abc");
+        cache.store("plugin/a:a:1.0", jar);
+        Files.writeString(jar, "changed");
+        final Path blob = cache.lookup("plugin/a:a:1.0").orElseThrow();
+        assertEquals("abc", Files.readString(blob));
+        if (Files.getFileAttributeView(blob, PosixFileAttributeView.class) != null) {
+            assertEquals(PosixFilePermissions.fromString("r--r--r--"), Files.getPosixFilePermissions(blob));
+        }
+    }
+
+    @Test
+    void sharesBlobsBetweenKeys() throws IOException {
+        final ArtifactCache cache = cache();
+        final Path jar = Files.writeString(dir.resolve("a.jar"), "abc");
+        cache.store("plugin/a:a:1.0", jar);
+        cache.store("url/https://example.org/a.jar", jar, Checksums.sha256(jar));
+        assertEquals(cache.lookup("plugin/a:a:1.0"), cache.lookup("url/https://example.org/a.jar"));
+        assertEquals(1, blobs().size());
+    }
+
+    @Test
+    void installsIntoTarget() throws IOException {
+        final ArtifactCache cache = cache();
+        final Path jar = Files.writeString(dir.resolve("a.jar"), "abc");
+        cache.store("plugin/a:a:1.0", jar);
+        final Path target = Files.createDirectories(dir.resolve("server")).resolve("a.jar");
+        assertEquals(Optional.of(Checksums.sha256(jar)), cache.install("plugin/a:a:1.0", target));
+        assertEquals("abc", Files.readString(target));
+        assertEquals(Optional.empty(), cache.install("plugin/b:b:1.0", dir.resolve("server").resolve("b.jar")));
+    }
+
+    @Test
+    void lookupLeavesBlobUntouched() throws IOException {
+        final ArtifactCache cache = cache();
+        cache.store("plugin/a:a:1.0", Files.writeString(dir.resolve("a.jar"), "abc"));
+        final Path blob = cache.lookup("plugin/a:a:1.0").orElseThrow();
+        final FileTime stored = Files.getLastModifiedTime(blob);
+        used("plugin/a:a:1.0", Instant.now().minus(Duration.ofDays(1)));
+        cache.lookup("plugin/a:a:1.0");
+        assertEquals(stored, Files.getLastModifiedTime(blob));
+        assertTrue(Files.getLastModifiedTime(keyFile("plugin/a:a:1.0")).toInstant().isAfter(Instant.now().minus(Duration.ofHours(1))));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedUntilItFits() throws IOException {
+        final ArtifactCache cache = cache();
+        final Instant now = Instant.now();
+        for (String name : List.of("a", "b", "c")) {
+            cache.store("plugin/" + name, Files.writeString(dir.resolve(name + ".jar"), name.repeat(10)));
+        }
+        used("plugin/a", now.minus(Duration.ofMinutes(1)));
+        used("plugin/b", now.minus(Duration.ofMinutes(3)));
+        used("plugin/c", now.minus(Duration.ofMinutes(2)));
+        cache.evict(20, Duration.ofDays(1));
+        assertTrue(cache.lookup("plugin/a").isPresent());
+        assertFalse(cache.lookup("plugin/b").isPresent());
+        assertTrue(cache.lookup("plugin/c").isPresent());
+        assertFalse(Files.exists(keyFile("plugin/b")));
+    }
+
+    @Test
+    void evictsUnusedEntries() throws IOException {
+        final ArtifactCache cache = cache();
+        cache.store("plugin/a", Files.writeString(dir.resolve("a.jar"), "a"));
+        cache.store("plugin/b", Files.writeString(dir.resolve("b.jar"), "b"));
+        used("plugin/a", Instant.now().minus(Duration.ofDays(40)));
+        final Path tree = Files.createDirectories(cache.getDir().resolve("paperclip").resolve("0123abcd").resolve("versions"));
+        Files.writeString(tree.resolve("server.jar"), "server");
+        Files.setLastModifiedTime(tree.getParent(), FileTime.from(Instant.now().minus(Duration.ofDays(40))));
+        cache.evict(Long.MAX_VALUE, Duration.ofDays(30));
+        assertFalse(cache.lookup("plugin/a").isPresent());
+        assertTrue(cache.lookup("plugin/b").isPresent());
+        assertFalse(Files.exists(tree.getParent()));
+    }
+
+    @Test
+    void disabledCacheStoresNothing() throws IOException {
+        final ArtifactCache cache = ArtifactCache.disabled(new SystemStreamLog());
+        cache.store("plugin/a", Files.writeString(dir.resolve("a.jar"), "a"));
+        cache.evict(0, Duration.ZERO);
+        assertEquals(Optional.empty(), cache.lookup("plugin/a"));
+        assertFalse(cache.isEnabled());
+    }
+
+    private ArtifactCache cache() {
+        return new ArtifactCache(dir.resolve("cache"), new SystemStreamLog());
+    }
+
+    private List<Path> blobs() throws IOException {
+        try (Stream<Path> stream = Files.walk(dir.resolve("cache").resolve("blobs"))) {
+            return stream.filter(Files::isRegularFile).toList();
+        }
+    }
+
+    /**
+     * Key files hold the digest and then the key, see {@link ArtifactCache#store(String, Path, String)}.
+     */
+    private Path keyFile(String key) throws IOException {
+        try (Stream<Path> stream = Files.list(dir.resolve("cache").resolve("keys"))) {
+            for (Path keyFile : stream.toList()) {
+                final List<String> lines = Files.readAllLines(keyFile);
+                if (lines.size() > 1 && lines.get(1).equals(key)) {
+                    return keyFile;
+                }
+            }
+        }
+        return dir.resolve("cache").resolve("keys").resolve("missing");
+    }
+
+    private void used(String key, Instant time) throws IOException {
+        Files.setLastModifiedTime(keyFile(key), FileTime.from(time));
+    }
+}
@@ -0,0 +1,99 @@
+package de.aethos.util;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ChecksumsTest {
+    private static final String EMPTY = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+    private static final String ABC = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void hashesFiles() throws IOException {
+        assertEquals(EMPTY, Checksums.sha256(Files.createFile(dir.resolve("empty.jar"))));
+        assertEquals(ABC, Checksums.sha256(Files.writeString(dir.resolve("abc.jar"), "abc")));
+    }
+
+    @Test
+    void hashMatchesMessageDigest() throws IOException {
+        final byte[] bytes = new byte[3 * 1024 * 1024 + 17];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (i * 31);
+        }
+        final Path file = Files.write(dir.resolve("large.jar"), bytes);
+        final MessageDigest digest = Checksums.digest("SHA-256");
+        digest.update(bytes);
+        assertEquals(Checksums.hex(digest), Checksums.sha256(file));
+    }
+
+    @Test
+    void savesDigestsRelativeToDirectory() throws IOException {
+        final Path jar = Files.createDirectories(dir.resolve("plugins")).resolve("a.jar");
+        final Checksums checksums = new Checksums(dir, new SystemStreamLog());
+        checksums.put(jar, ABC);
+        checksums.save();
+        assertTrue(Files.readString(dir.resolve(".aethos").resolve("checksums.properties"), StandardCharsets.ISO_8859_1).contains("plugins/a.jar=" + ABC));
+        assertEquals(Optional.of(ABC), new Checksums(dir, new SystemStreamLog()).get(jar));
+    }
+
+    @Test
+    void prefersRecordedDigest() throws IOException {
+        final Checksums checksums = new Checksums(dir, new SystemStreamLog());
+        final Path recorded = dir.resolve("missing.jar");
+        checksums.put(recorded, ABC);
+        // the file does not exist, so hashing it would fail
+        assertEquals(ABC, checksums.sha256Of(recorded));
+        assertEquals(EMPTY, checksums.sha256Of(Files.createFile(dir.resolve("empty.jar"))));
+    }
+
+    @Test
+    void verifyDeletesCorruptJars() throws IOException {
+        final Path plugins = Files.createDirectories(dir.resolve("plugins"));
+        final Path intact = Files.writeString(plugins.resolve("intact.jar"), "abc");
+        final Path corrupt = Files.writeString(plugins.resolve("corrupt.jar"), "abd");
+        final Checksums checksums = new Checksums(dir, new SystemStreamLog());
+        checksums.put(intact, ABC);
+        checksums.put(corrupt, ABC);
+        assertEquals(List.of(corrupt), checksums.verify(2, ArtifactCache.disabled(new SystemStreamLog())));
+        assertTrue(Files.exists(intact));
+        assertFalse(Files.exists(corrupt));
+        assertEquals(Optional.empty(), checksums.get(corrupt));
+    }
+
+    @Test
+    void verifyEvictsCorruptBlobs() throws IOException {
+        final ArtifactCache cache = new ArtifactCache(dir.resolve("cache"), new SystemStreamLog());
+        cache.store("plugin/a:a:1.0", Files.writeString(dir.resolve("a.jar"), "abc"));
+        cache.store("plugin/b:b:1.0", Files.writeString(dir.resolve("b.jar"), "abd"));
+        final Path plugins = Files.createDirectories(dir.resolve("server").resolve("plugins"));
+        final Checksums checksums = new Checksums(dir.resolve("server"), new SystemStreamLog());
+        final Path corrupt = plugins.resolve("a.jar");
+        final Path intact = plugins.resolve("b.jar");
+        checksums.put(corrupt, cache.install("plugin/a:a:1.0", corrupt).orElseThrow());
+        checksums.put(intact, cache.install("plugin/b:b:1.0", intact).orElseThrow());
+        // a write through the hardlink corrupts the blob as well
+        corrupt.toFile().setWritable(true);
+        Files.writeString(corrupt, "abx");
+        assumeTrue(Files.isSameFile(corrupt, cache.lookup("plugin/a:a:1.0").orElseThrow()));
+        assertEquals(List.of(corrupt), checksums.verify(2, cache));
+        assertEquals(Optional.empty(), cache.lookup("plugin/a:a:1.0"));
+        assertEquals(Optional.empty(), cache.install("plugin/a:a:1.0", corrupt));
+        assertTrue(cache.lookup("plugin/b:b:1.0").isPresent());
+    }
+}
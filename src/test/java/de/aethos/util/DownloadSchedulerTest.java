@@ -0,0 +1,73 @@
+package de.aethos.util;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DownloadSchedulerTest {
+
+    @Test
+    void busyHostDoesNotBlockOtherHosts() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger peak = new AtomicInteger();
+        try (DownloadScheduler scheduler = new DownloadScheduler(2, 1, new SystemStreamLog())) {
+            for (int i = 0; i < 3; i++) {
+                scheduler.submit("slow " + i, "slow.example", () -> {
+                    peak.accumulateAndGet(active.incrementAndGet(), Math::max);
+                    release.await();
+                    active.decrementAndGet();
+                    return null;
+                });
+            }
+            // with the slow host's queued tasks parked in workers, this would wait for the slow downloads
+            final CompletableFuture<String> fast = scheduler.submit("fast", "fast.example", () -> "done");
+            assertEquals("done", fast.get(10, TimeUnit.SECONDS));
+            release.countDown();
+            scheduler.await();
+        }
+        assertEquals(1, peak.get());
+    }
+
+    @Test
+    void skipsTasksCancelledWhileQueued() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicBoolean ran = new AtomicBoolean();
+        try (DownloadScheduler scheduler = new DownloadScheduler(2, 1, new SystemStreamLog())) {
+            scheduler.submit("first", "example", () -> release.await(10, TimeUnit.SECONDS));
+            final CompletableFuture<Boolean> queued = scheduler.submit("second", "example", () -> ran.getAndSet(true));
+            queued.cancel(false);
+            release.countDown();
+            scheduler.await();
+            // the host's slot is free again
+            assertTrue(scheduler.submit("third", "example", () -> true).get(10, TimeUnit.SECONDS));
+        }
+        assertFalse(ran.get());
+    }
+
+    @Test
+    void reportsAllFailures() {
+        try (DownloadScheduler scheduler = new DownloadScheduler(2, 1, new SystemStreamLog())) {
+            scheduler.submit("a", "example", () -> {
+                throw new IOException("a failed");
+            });
+            scheduler.submit("b", "example", () -> "b");
+            scheduler.fail("c", new IOException("c failed"));
+            final MojoExecutionException exception = assertThrows(MojoExecutionException.class, scheduler::await);
+            assertEquals("2 download(s) failed", exception.getMessage());
+            assertEquals(2, exception.getSuppressed().length);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package de.aethos.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InstallStateTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void fingerprintDependsOnEveryInput() {
+        final String fingerprint = InstallState.fingerprint(List.of("version=1.21.1", "plugin=a:b:1.0"));
+        assertEquals(fingerprint, InstallState.fingerprint(List.of("version=1.21.1", "plugin=a:b:1.0")));
+        assertEquals(64, fingerprint.length());
+        assertNotEquals(fingerprint, InstallState.fingerprint(List.of("version=1.21.1", "plugin=a:b:1.1")));
+        assertNotEquals(fingerprint, InstallState.fingerprint(List.of("plugin=a:b:1.0", "version=1.21.1")));
+        assertNotEquals(fingerprint, InstallState.fingerprint(List.of("version=1.21.1")));
+    }
+
+    @Test
+    void upToDateWhileFilesAreUnchanged() throws IOException {
+        final Path jar = Files.writeString(dir.resolve("paper.jar"), "paper");
+        final InstallState state = new InstallState("inputs");
+        state.record(dir, "paper.jar");
+        state.record(dir, "missing.jar");
+        state.write(dir);
+
+        final InstallState read = InstallState.read(dir);
+        assertEquals("inputs", read.getFingerprint());
+        assertEquals(List.of("paper.jar"), List.copyOf(read.getFiles().keySet()));
+        assertTrue(read.isUpToDate(dir, "inputs"));
+        assertFalse(read.isUpToDate(dir, "other inputs"));
+
+        Files.setLastModifiedTime(jar, FileTime.fromMillis(Files.getLastModifiedTime(jar).toMillis() + 2000));
+        assertFalse(read.isUpToDate(dir, "inputs"));
+        Files.delete(jar);
+        assertFalse(read.isUpToDate(dir, "inputs"));
+    }
+
+    @Test
+    void stateWithoutFilesIsNeverUpToDate() {
+        assertFalse(new InstallState("inputs").isUpToDate(dir, "inputs"));
+    }
+
+    @Test
+    void unreadableStateReadsAsEmpty() throws IOException {
+        Files.createDirectories(InstallState.file(dir).getParent());
+        Files.writeString(InstallState.file(dir), "{ not json");
+        final InstallState state = InstallState.read(dir);
+        assertNull(state.getFingerprint());
+        assertTrue(state.getFiles().isEmpty());
+        assertFalse(state.isUpToDate(dir, null));
+    }
+}
@@ -0,0 +1,165 @@
+package de.aethos.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoadClientTest {
+
+    @Test
+    void encodesVarInts() throws IOException {
+        assertEquals("00", varInt(0));
+        assertEquals("01", varInt(1));
+        assertEquals("7f", varInt(127));
+        assertEquals("8001", varInt(128));
+        assertEquals("ff01", varInt(255));
+        assertEquals("ddc701", varInt(25565));
+        assertEquals("ffff7f", varInt(2097151));
+        assertEquals("ffffffff07", varInt(Integer.MAX_VALUE));
+        assertEquals("ffffffff0f", varInt(-1));
+        assertEquals("8080808008", varInt(Integer.MIN_VALUE));
+    }
+
+    @Test
+    void varIntsRoundTrip() throws IOException {
+        for (int value : List.of(0, 1, 127, 128, 255, 25565, 2097151, 2097152, Integer.MAX_VALUE, -1, Integer.MIN_VALUE)) {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            LoadClient.writeVarInt(new DataOutputStream(bytes), value);
+            assertEquals(value, LoadClient.readVarInt(new ByteArrayInputStream(bytes.toByteArray())));
+        }
+    }
+
+    @Test
+    void rejectsMalformedVarInts() {
+        assertThrows(IOException.class, () -> LoadClient.readVarInt(new ByteArrayInputStream(HexFormat.of().parseHex("ffffffffff01"))));
+        assertThrows(EOFException.class, () -> LoadClient.readVarInt(new ByteArrayInputStream(HexFormat.of().parseHex("ff"))));
+    }
+
+    @Test
+    void stringsArePrefixedWithTheirUtf8Length() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        LoadClient.writeString(new DataOutputStream(bytes), "hé");
+        assertArrayEquals(new byte[]{3, 'h', (byte) 0xC3, (byte) 0xA9}, bytes.toByteArray());
+        assertEquals("hé", LoadClient.readString(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))));
+    }
+
+    @Test
+    void framesLoginAndReadsDisconnect() throws Exception {
+        assertLoginDisconnect(false);
+    }
+
+    @Test
+    void readsCompressedPackets() throws Exception {
+        assertLoginDisconnect(true);
+    }
+
+    /**
+     * Plays a server that checks the handshake and login start frames and then refuses the login.
+     */
+    private static void assertLoginDisconnect(boolean compressed) throws Exception {
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            final CompletableFuture<Void> handshake = CompletableFuture.runAsync(() -> {
+                try (Socket socket = server.accept()) {
+                    final InputStream in = socket.getInputStream();
+                    final DataInputStream handshakeFrame = frame(in);
+                    assertEquals(0x00, LoadClient.readVarInt(handshakeFrame));
+                    assertEquals(LoadClient.PROTOCOL, LoadClient.readVarInt(handshakeFrame));
+                    assertEquals("localhost", LoadClient.readString(handshakeFrame));
+                    assertEquals(server.getLocalPort(), handshakeFrame.readUnsignedShort());
+                    assertEquals(2, LoadClient.readVarInt(handshakeFrame));
+                    assertEquals(0, handshakeFrame.available());
+                    final DataInputStream loginFrame = frame(in);
+                    assertEquals(0x00, LoadClient.readVarInt(loginFrame));
+                    assertEquals("Tester", LoadClient.readString(loginFrame));
+                    loginFrame.readLong();
+                    loginFrame.readLong();
+                    assertEquals(0, loginFrame.available());
+
+                    final OutputStream out = socket.getOutputStream();
+                    final ByteArrayOutputStream disconnect = new ByteArrayOutputStream();
+                    LoadClient.writeVarInt(new DataOutputStream(disconnect), 0x00);
+                    LoadClient.writeString(new DataOutputStream(disconnect), "{\"text\":\"Server full\"}");
+                    if (compressed) {
+                        final ByteArrayOutputStream threshold = new ByteArrayOutputStream();
+                        LoadClient.writeVarInt(new DataOutputStream(threshold), 0x03);
+                        LoadClient.writeVarInt(new DataOutputStream(threshold), 0);
+                        send(out, threshold.toByteArray());
+                        final ByteArrayOutputStream frame = new ByteArrayOutputStream();
+                        LoadClient.writeVarInt(new DataOutputStream(frame), disconnect.size());
+                        frame.write(deflate(disconnect.toByteArray()));
+                        send(out, frame.toByteArray());
+                    } else {
+                        send(out, disconnect.toByteArray());
+                    }
+                    // the client closes the connection once it gave up on the login
+                    assertEquals(-1, in.read());
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            final LoadClient client = new LoadClient("Tester", 2);
+            final IOException failure = assertThrows(IOException.class, () -> client.connect("localhost", server.getLocalPort(), Duration.ofSeconds(10)));
+            assertTrue(failure.getMessage().contains("Server full"), failure.getMessage());
+            assertFalse(client.isConnected());
+            assertEquals("{\"text\":\"Server full\"}", client.getDisconnectReason());
+            handshake.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private static DataInputStream frame(InputStream in) throws IOException {
+        final byte[] frame = new byte[LoadClient.readVarInt(in)];
+        new DataInputStream(in).readFully(frame);
+        return new DataInputStream(new ByteArrayInputStream(frame));
+    }
+
+    private static void send(OutputStream out, byte[] frame) throws IOException {
+        final DataOutputStream data = new DataOutputStream(out);
+        LoadClient.writeVarInt(data, frame.length);
+        data.write(frame);
+        data.flush();
+    }
+
+    private static byte[] deflate(byte[] bytes) {
+        final Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[1024];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static String varInt(int value) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        LoadClient.writeVarInt(new DataOutputStream(bytes), value);
+        return HexFormat.of().formatHex(bytes.toByteArray());
+    }
+}
@@ -0,0 +1,87 @@
+package de.aethos.util;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Repository;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PluginDownloaderTest {
+    private final AtomicInteger probes = new AtomicInteger();
+    private HttpServer server;
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            probes.incrementAndGet();
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void reportsDependencyNoRepositoryHas() {
+        final SystemStreamLog log = new SystemStreamLog();
+        final PluginDownloader downloader = new PluginDownloader(dir.resolve("plugins"), log, List.of(dependency()),
+                List.of(repository("first"), repository("second")), ArtifactCache.disabled(log), new RepositoryRouter(null, log), new Checksums(dir, log));
+        try (DownloadScheduler scheduler = new DownloadScheduler(2, 2, log)) {
+            downloader.download(scheduler);
+            final MojoExecutionException exception = assertThrows(MojoExecutionException.class, scheduler::await);
+            assertEquals(1, exception.getSuppressed().length);
+            assertTrue(exception.getSuppressed()[0].getMessage().contains("de.example:example:1.0 could not be found in any repository"));
+        }
+        assertEquals(2, probes.get());
+    }
+
+    @Test
+    void reportsDependencyWithoutRepositories() {
+        final SystemStreamLog log = new SystemStreamLog();
+        final PluginDownloader downloader = new PluginDownloader(dir.resolve("plugins"), log, List.of(dependency()),
+                List.of(), ArtifactCache.disabled(log), new RepositoryRouter(null, log), new Checksums(dir, log));
+        try (DownloadScheduler scheduler = new DownloadScheduler(2, 2, log)) {
+            downloader.download(scheduler);
+            assertThrows(MojoExecutionException.class, scheduler::await);
+        }
+    }
+
+    private static Dependency dependency() {
+        final Dependency dependency = new Dependency();
+        dependency.setGroupId("de.example");
+        dependency.setArtifactId("example");
+        dependency.setVersion("1.0");
+        dependency.setScope("provided");
+        return dependency;
+    }
+
+    private Repository repository(String id) {
+        final Repository repository = new Repository();
+        repository.setId(id);
+        repository.setUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/" + id + "/");
+        return repository;
+    }
+}
@@ -0,0 +1,94 @@
+package de.aethos.util;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PluginIndexTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void inspectsDescriptors() throws IOException {
+        final Path plugins = Files.createDirectories(dir.resolve("plugins"));
+        assertEquals("A", PluginIndex.inspect(jar(plugins.resolve("a.jar"), "plugin.yml", "name: A\n")).orElseThrow().name());
+        final Path both = plugins.resolve("b.jar");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(both))) {
+            entry(zip, "plugin.yml", "name: Bukkit\n");
+            entry(zip, "paper-plugin.yml", "name: Paper\n");
+        }
+        assertEquals("Paper", PluginIndex.inspect(both).orElseThrow().name());
+        assertEquals(Optional.empty(), PluginIndex.inspect(jar(plugins.resolve("library.jar"), "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n")));
+        assertThrows(IOException.class, () -> PluginIndex.inspect(jar(plugins.resolve("broken.jar"), "plugin.yml", "name: [unclosed\n")));
+    }
+
+    @Test
+    void reusesEntriesOfUnchangedJars() throws IOException {
+        final Path plugins = Files.createDirectories(dir.resolve("plugins"));
+        final Path jar = jar(plugins.resolve("a.jar"), "plugin.yml", "name: Old\n");
+        final FileTime modified = Files.getLastModifiedTime(jar);
+        assertEquals("Old", new PluginIndex(dir, new SystemStreamLog()).refresh().get("a.jar").name());
+
+        // same size and modification time: the persisted index is trusted without opening the jar
+        jar(jar, "plugin.yml", "name: New\n");
+        Files.setLastModifiedTime(jar, modified);
+        assertEquals("Old", new PluginIndex(dir, new SystemStreamLog()).refresh().get("a.jar").name());
+
+        Files.setLastModifiedTime(jar, FileTime.fromMillis(modified.toMillis() + 2000));
+        assertEquals("New", new PluginIndex(dir, new SystemStreamLog()).refresh().get("a.jar").name());
+    }
+
+    @Test
+    void dropsRemovedJars() throws IOException {
+        final Path plugins = Files.createDirectories(dir.resolve("plugins"));
+        jar(plugins.resolve("a.jar"), "plugin.yml", "name: A\n");
+        final Path b = jar(plugins.resolve("b.jar"), "plugin.yml", "name: B\n");
+        assertEquals(Set.of("a.jar", "b.jar"), new PluginIndex(dir, new SystemStreamLog()).refresh().keySet());
+        Files.delete(b);
+        assertEquals(Set.of("a.jar"), new PluginIndex(dir, new SystemStreamLog()).refresh().keySet());
+    }
+
+    @Test
+    void reportsMissingDependencies() throws IOException {
+        final Path plugins = Files.createDirectories(dir.resolve("plugins"));
+        jar(plugins.resolve("economy.jar"), "plugin.yml", "name: Economy\ndepend: [Vault]\n");
+        jar(plugins.resolve("shop.jar"), "plugin.yml", "name: Shop\ndepend: [Economy, Permissions]\n");
+        jar(plugins.resolve("perms.jar"), "plugin.yml", "name: LuckPerms\nprovides: [Permissions]\nsoftdepend: [Missing]\n");
+        final PluginIndex index = new PluginIndex(dir, new SystemStreamLog());
+        index.refresh();
+        final Map<String, Set<String>> missing = index.missingDependencies();
+        assertEquals(Set.of("Economy", "Shop"), missing.keySet());
+        assertEquals(Set.of("Vault"), missing.get("Economy"));
+        assertEquals(Set.of("Vault"), missing.get("Shop"));
+        assertTrue(index.find("LuckPerms").isPresent());
+    }
+
+    private static Path jar(Path jar, String name, String content) throws IOException {
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(jar))) {
+            entry(zip, name, content);
+        }
+        return jar;
+    }
+
+    private static void entry(ZipOutputStream zip, String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+}
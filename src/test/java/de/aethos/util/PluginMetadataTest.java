@@ -0,0 +1,79 @@
+package de.aethos.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PluginMetadataTest {
+
+    @Test
+    void readsPluginYml() {
+        final PluginMetadata plugin = PluginMetadata.fromPluginYml("""
+                name: Example
+                version: '1.10'
+                main: de.example.Example
+                depend: [Vault, ProtocolLib]
+                softdepend:
+                  - PlaceholderAPI
+                loadbefore: []
+                provides: [ExampleApi]
+                commands:
+                  example:
+                    description: "Does: things"
+                """);
+        assertEquals("Example", plugin.name());
+        assertEquals("1.10", plugin.version());
+        assertEquals("de.example.Example", plugin.main());
+        assertEquals(List.of("Vault", "ProtocolLib"), plugin.depend());
+        assertEquals(List.of("PlaceholderAPI"), plugin.softdepend());
+        assertEquals(List.of(), plugin.loadbefore());
+        assertEquals(List.of("ExampleApi"), plugin.provides());
+        assertFalse(plugin.paper());
+    }
+
+    @Test
+    void readsScalarsLikeBukkit() {
+        final PluginMetadata plugin = PluginMetadata.fromPluginYml("name: Example\nversion: 1.10\ndepend: Vault\n");
+        assertEquals("1.1", plugin.version());
+        assertEquals(List.of("Vault"), plugin.depend());
+        assertEquals(List.of(), plugin.softdepend());
+        assertNull(plugin.main());
+    }
+
+    @Test
+    void emptyDescriptorHasNoValues() {
+        final PluginMetadata plugin = PluginMetadata.fromPluginYml("");
+        assertNull(plugin.name());
+        assertEquals(List.of(), plugin.depend());
+    }
+
+    @Test
+    void mapsPaperPluginDependencies() {
+        final PluginMetadata plugin = PluginMetadata.fromPaperPluginYml("""
+                name: Example
+                version: 2.0.0
+                main: de.example.Example
+                dependencies:
+                  bootstrap:
+                    Ignored: {}
+                  server:
+                    Vault:
+                      load: BEFORE
+                    PlaceholderAPI:
+                      required: false
+                    Addon:
+                      load: AFTER
+                      required: false
+                """);
+        assertEquals("Example", plugin.name());
+        assertEquals(List.of("Vault"), plugin.depend());
+        assertEquals(List.of("PlaceholderAPI", "Addon"), plugin.softdepend());
+        assertEquals(List.of("Addon"), plugin.loadbefore());
+        assertTrue(plugin.paper());
+    }
+}
@@ -0,0 +1,291 @@
+package de.aethos.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static de.aethos.util.SegmentedDownloader.MIN_SEGMENT_SIZE;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentedDownloaderTest {
+    private static final String ETAG = "\"etag\"";
+    private final List<Long> rangeStarts = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger plainRequests = new AtomicInteger();
+    private final AtomicInteger drops = new AtomicInteger();
+    private volatile boolean ranges = true;
+    private byte[] content;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        content = new byte[(int) (3 * MIN_SEGMENT_SIZE + 12345)];
+        new Random(1).nextBytes(content);
+        executor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/paper.jar", this::serve);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void downloadsInParallelRanges() throws IOException {
+        final Path target = dir.resolve("paper.jar");
+        final String sha256 = new SegmentedDownloader(4, new SystemStreamLog()).download(jarUrl(), target);
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals(sha256(content), sha256);
+        assertEquals(3, rangeStarts.size());
+        assertEquals(0, plainRequests.get());
+        assertFalse(Files.exists(state()));
+    }
+
+    @Test
+    void resumesDroppedRange() throws IOException {
+        drops.set(1);
+        final Path target = dir.resolve("paper.jar");
+        new SegmentedDownloader(4, new SystemStreamLog()).download(jarUrl(), target);
+        assertArrayEquals(content, Files.readAllBytes(target));
+        // the dropped segment asks again from where its bytes ended, not from its start
+        assertEquals(4, rangeStarts.size());
+        final SegmentedDownloader.Progress segments = new SegmentedDownloader.Progress(state(), jarUrl(), ETAG, content.length, 3);
+        assertEquals(1, rangeStarts.stream().filter(start -> start != 0 && start != segments.end(0) + 1 && start != segments.end(1) + 1).count());
+        assertFalse(Files.exists(state()));
+    }
+
+    @Test
+    void resumesEarlierDownloadFromState() throws IOException {
+        final Path target = dir.resolve("paper.jar");
+        final SegmentedDownloader.Progress progress = new SegmentedDownloader.Progress(state(), jarUrl(), ETAG, content.length, 3);
+        final int half = (int) (progress.end(0) / 2);
+        final byte[] partial = new byte[content.length];
+        System.arraycopy(content, 0, partial, 0, half);
+        Files.write(target, partial);
+        progress.advance(0, half);
+        progress.save();
+
+        new SegmentedDownloader(4, new SystemStreamLog()).download(jarUrl(), target);
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertTrue(rangeStarts.contains((long) half));
+        assertFalse(rangeStarts.contains(0L));
+        assertFalse(Files.exists(state()));
+    }
+
+    @Test
+    void streamsWithoutRangeSupport() throws IOException {
+        ranges = false;
+        final Path target = dir.resolve("paper.jar");
+        final String sha256 = new SegmentedDownloader(4, new SystemStreamLog()).download(jarUrl(), target);
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals(sha256(content), sha256);
+        assertEquals(List.of(), rangeStarts);
+        assertEquals(1, plainRequests.get());
+    }
+
+    @Test
+    void streamsSmallFiles() throws IOException {
+        content = new byte[1024];
+        new Random(2).nextBytes(content);
+        final Path target = dir.resolve("paper.jar");
+        new SegmentedDownloader(4, new SystemStreamLog()).download(jarUrl(), target);
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals(List.of(), rangeStarts);
+    }
+
+    @Test
+    void failsOnMissingFile() throws IOException {
+        final URL missing = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/missing.jar").toURL();
+        assertThrows(IOException.class, () -> new SegmentedDownloader(4, new SystemStreamLog()).download(missing, dir.resolve("paper.jar")));
+    }
+
+    @Test
+    void keepsStateOfFailedSegmentedDownload() throws IOException {
+        drops.set(Integer.MAX_VALUE);
+        final Path target = dir.resolve("paper.jar");
+        assertThrows(IOException.class, () -> new SegmentedDownloader(4, new SystemStreamLog()).download(jarUrl(), target));
+        final SegmentedDownloader.Progress progress = SegmentedDownloader.Progress.load(state(), jarUrl(), ETAG, content.length);
+        assertNotNull(progress);
+        assertTrue(progress.completed() > 0);
+        assertFalse(progress.isComplete());
+    }
+
+    @Test
+    void streamedDownloadRemovesStaleState() throws IOException {
+        ranges = false;
+        Files.writeString(state(), "segments=1");
+        new SegmentedDownloader(4, new SystemStreamLog()).download(jarUrl(), dir.resolve("paper.jar"));
+        assertFalse(Files.exists(state()));
+    }
+
+    @Test
+    void failedRequestRemovesState() throws IOException {
+        final URL missing = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/missing.jar").toURL();
+        final Path state = Files.writeString(dir.resolve("missing.jar.state"), "segments=1");
+        assertThrows(IOException.class, () -> new SegmentedDownloader(4, new SystemStreamLog()).download(missing, dir.resolve("missing.jar")));
+        assertFalse(Files.exists(state));
+    }
+
+    @Test
+    void segmentsAreAtLeastMinimumSize() {
+        assertEquals(1, SegmentedDownloader.segments(MIN_SEGMENT_SIZE - 1, 8));
+        assertEquals(1, SegmentedDownloader.segments(2 * MIN_SEGMENT_SIZE - 1, 8));
+        assertEquals(3, SegmentedDownloader.segments(3 * MIN_SEGMENT_SIZE + 5, 8));
+        assertEquals(8, SegmentedDownloader.segments(100 * MIN_SEGMENT_SIZE, 8));
+        assertEquals(1, SegmentedDownloader.segments(100 * MIN_SEGMENT_SIZE, 0));
+    }
+
+    @Test
+    void segmentsCoverEveryByteOnce() throws IOException {
+        final long length = 10 * MIN_SEGMENT_SIZE + 3;
+        final SegmentedDownloader.Progress progress = progress(length, 4);
+        assertEquals(4, progress.count());
+        long next = 0;
+        for (int i = 0; i < progress.count(); i++) {
+            assertEquals(next, progress.position(i));
+            assertTrue(progress.end(i) >= progress.position(i));
+            next = progress.end(i) + 1;
+        }
+        assertEquals(length, next);
+        assertEquals(0, progress.completed());
+        assertFalse(progress.isComplete());
+    }
+
+    @Test
+    void segmentCompletesPastItsEnd() throws IOException {
+        final SegmentedDownloader.Progress progress = progress(8 * MIN_SEGMENT_SIZE, 2);
+        progress.advance(0, progress.end(0));
+        assertFalse(progress.isComplete(0));
+        progress.advance(0, progress.end(0) + 1);
+        assertTrue(progress.isComplete(0));
+        assertFalse(progress.isComplete());
+        progress.advance(1, progress.end(1) + 1);
+        assertTrue(progress.isComplete());
+        assertEquals(8 * MIN_SEGMENT_SIZE, progress.completed());
+    }
+
+    @Test
+    void resumesFromSavedProgress() throws IOException {
+        final long length = 8 * MIN_SEGMENT_SIZE;
+        final SegmentedDownloader.Progress progress = progress(length, 2);
+        progress.advance(1, progress.position(1) + 1234);
+        progress.save();
+        final SegmentedDownloader.Progress resumed = SegmentedDownloader.Progress.load(state(), url(), ETAG, length);
+        assertNotNull(resumed);
+        assertEquals(2, resumed.count());
+        assertEquals(progress.position(0), resumed.position(0));
+        assertEquals(progress.position(1), resumed.position(1));
+        assertEquals(progress.end(1), resumed.end(1));
+        assertEquals(1234, resumed.completed());
+    }
+
+    @Test
+    void discardsProgressOfAnotherVersion() throws IOException {
+        final long length = 8 * MIN_SEGMENT_SIZE;
+        progress(length, 2).save();
+        assertNull(SegmentedDownloader.Progress.load(state(), url(), "\"other\"", length));
+        assertNull(SegmentedDownloader.Progress.load(state(), url(), ETAG, length + 1));
+        assertNull(SegmentedDownloader.Progress.load(state(), URI.create("https://example.org/other.jar").toURL(), ETAG, length));
+        Files.writeString(state(), "segments=garbage");
+        assertNull(SegmentedDownloader.Progress.load(state(), url(), ETAG, length));
+    }
+
+    /**
+     * A file server like Paper's CDN: HEAD with length, ETag and optionally {@code Accept-Ranges}, then range requests.
+     * While {@link #drops} is positive a range response is cut off halfway through.
+     */
+    private void serve(HttpExchange exchange) throws IOException {
+        try {
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Content-Length", String.valueOf(content.length));
+                exchange.getResponseHeaders().set("ETag", ETAG);
+                if (ranges) {
+                    exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+                }
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            final String range = exchange.getRequestHeaders().getFirst("Range");
+            if (range == null || !ranges) {
+                plainRequests.incrementAndGet();
+                exchange.sendResponseHeaders(200, content.length);
+                exchange.getResponseBody().write(content);
+                return;
+            }
+            final String[] bounds = range.substring("bytes=".length()).split("-");
+            final int start = Integer.parseInt(bounds[0]);
+            final int end = Integer.parseInt(bounds[1]);
+            rangeStarts.add((long) start);
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+            exchange.sendResponseHeaders(206, end - start + 1);
+            final OutputStream body = exchange.getResponseBody();
+            if (drops.getAndDecrement() > 0) {
+                body.write(content, start, (end - start + 1) / 2);
+                body.flush();
+                // closing the exchange short of the announced length drops the connection
+                return;
+            }
+            body.write(content, start, end - start + 1);
+        } catch (IOException ignored) {
+            // the client gave up on the response
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private SegmentedDownloader.Progress progress(long length, int count) throws IOException {
+        return new SegmentedDownloader.Progress(state(), url(), ETAG, length, count);
+    }
+
+    private URL jarUrl() throws IOException {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/paper.jar").toURL();
+    }
+
+    private static String sha256(byte[] bytes) {
+        final MessageDigest digest = Checksums.digest("SHA-256");
+        digest.update(bytes);
+        return Checksums.hex(digest);
+    }
+
+    private Path state() {
+        return dir.resolve("paper.jar.state");
+    }
+
+    private static URL url() throws IOException {
+        return URI.create("https://example.org/paper.jar").toURL();
+    }
+}
@@ -0,0 +1,48 @@
+package de.aethos.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SummaryTest {
+
+    @Test
+    void summarizesValues() {
+        final Summary summary = Summary.of(List.of(5.0, 1.0, 3.0, 2.0, 4.0));
+        assertEquals(5, summary.count());
+        assertEquals(1.0, summary.min());
+        assertEquals(3.0, summary.median());
+        assertEquals(5.0, summary.p95());
+        assertEquals(5.0, summary.max());
+    }
+
+    @Test
+    void skipsNaN() {
+        final Summary summary = Summary.of(List.of(Double.NaN, 2.0, 4.0));
+        assertEquals(2, summary.count());
+        assertEquals(2.0, summary.median());
+    }
+
+    @Test
+    void emptySeriesIsNaN() {
+        final Summary summary = Summary.of(List.of());
+        assertEquals(0, summary.count());
+        assertTrue(Double.isNaN(summary.min()));
+        assertTrue(Double.isNaN(summary.median()));
+        assertTrue(Double.isNaN(summary.p95()));
+        assertTrue(Double.isNaN(summary.max()));
+    }
+
+    @Test
+    void percentileUsesNearestRank() {
+        final List<Double> sorted = List.of(1.0, 2.0, 3.0, 4.0, 5.0, 6.0, 7.0, 8.0, 9.0, 10.0,
+                11.0, 12.0, 13.0, 14.0, 15.0, 16.0, 17.0, 18.0, 19.0, 20.0);
+        assertEquals(10.0, Summary.percentile(sorted, 50));
+        assertEquals(19.0, Summary.percentile(sorted, 95));
+        assertEquals(20.0, Summary.percentile(sorted, 100));
+        assertEquals(1.0, Summary.percentile(sorted, 0));
+    }
+}
@@ -0,0 +1,43 @@
+package de.aethos.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TickSamplerTest {
+
+    @Test
+    void readsTpsOfLastMinute() {
+        assertEquals(19.87, TickSampler.tps("\u00A76TPS from last 1m, 5m, 15m: \u00A7a19.87, \u00A7a20.0, \u00A7a20.0"));
+        // Paper marks values above 20 with an asterisk
+        assertEquals(20.0, TickSampler.tps("\u00A76TPS from last 1m, 5m, 15m: \u00A7a*20.0, \u00A7a*20.0, \u00A7a*20.0"));
+    }
+
+    @Test
+    void tpsWithoutValueIsNaN() {
+        assertTrue(Double.isNaN(TickSampler.tps("Unknown command")));
+    }
+
+    @Test
+    void readsFirstMsptTriple() {
+        final String response = "\u00A76Server tick times \u00A7e(\u00A77avg\u00A7e/\u00A77min\u00A7e/\u00A77max\u00A7e)\u00A76 from last 5s\u00A77,\u00A76 10s\u00A77,\u00A76 1m\u00A7e:\n"
+                + "\u00A76\u25F4 \u00A7a1.2\u00A77/\u00A7a0.8\u00A77/\u00A7a3.4\u00A7e, \u00A7a1.5\u00A77/\u00A7a0.7\u00A77/\u00A7a9.1\u00A7e, \u00A7a2.0\u00A77/\u00A7a0.5\u00A77/\u00A7a12.3";
+        assertArrayEquals(new double[]{1.2, 0.8, 3.4}, TickSampler.mspt(response));
+    }
+
+    @Test
+    void msptWithoutValuesIsNaN() {
+        final double[] mspt = TickSampler.mspt("Unknown command");
+        assertEquals(3, mspt.length);
+        assertTrue(Double.isNaN(mspt[0]) && Double.isNaN(mspt[1]) && Double.isNaN(mspt[2]));
+    }
+
+    @Test
+    void readsLastTotal() {
+        assertEquals(42, TickSampler.total("\u00A73world: \u00A7a30\n\u00A73world_nether: \u00A7a12\n\u00A73Total Entities: \u00A7a42"));
+        assertEquals(441, TickSampler.total("Chunks in world: 400\nTotal: 441"));
+        assertEquals(-1, TickSampler.total("Unknown command"));
+    }
+}
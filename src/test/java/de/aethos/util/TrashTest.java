@@ -0,0 +1,77 @@
+package de.aethos.util;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrashTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void trashLivesNextToServer() {
+        assertEquals(dir.resolve(".server.trash"), new Trash(dir.resolve("server"), new SystemStreamLog()).getDir());
+    }
+
+    @Test
+    void moveThenPurgeEmptiesTrash() throws IOException {
+        final Path server = dir.resolve("server");
+        final Path world = tree(server.resolve("world"));
+        final Path log = Files.writeString(server.resolve("latest.log"), "log");
+        final Trash trash = new Trash(server, new SystemStreamLog());
+        assertTrue(trash.isEmpty());
+
+        trash.move(world);
+        trash.move(log);
+        trash.move(server.resolve("missing"));
+        assertFalse(Files.exists(world));
+        assertFalse(Files.exists(log));
+        assertTrue(Files.isDirectory(server));
+        assertFalse(trash.isEmpty());
+
+        assertEquals(5, trash.purge());
+        assertTrue(trash.isEmpty());
+    }
+
+    @Test
+    void deletesNestedTrees() throws IOException {
+        final Path root = tree(dir.resolve("root"));
+        Path deep = root;
+        for (int i = 0; i < 20; i++) {
+            deep = Files.createDirectories(deep.resolve("level" + i));
+            Files.writeString(deep.resolve("file.txt"), "x");
+        }
+        assertEquals(24, Trash.delete(root));
+        assertFalse(Files.exists(root));
+        assertEquals(0, Trash.delete(root));
+    }
+
+    @Test
+    void deletesSingleFiles() throws IOException {
+        final Path file = Files.writeString(dir.resolve("file.txt"), "x");
+        assertEquals(1, Trash.delete(file));
+        assertFalse(Files.exists(file));
+    }
+
+    /**
+     * Four files in three directories.
+     */
+    private static Path tree(Path root) throws IOException {
+        Files.createDirectories(root.resolve("region"));
+        Files.createDirectories(root.resolve("data").resolve("nested"));
+        Files.writeString(root.resolve("level.dat"), "level");
+        Files.writeString(root.resolve("region").resolve("r.0.0.mca"), "region");
+        Files.writeString(root.resolve("data").resolve("raids.dat"), "raids");
+        Files.writeString(root.resolve("data").resolve("nested").resolve("map_0.dat"), "map");
+        return root;
+    }
+}
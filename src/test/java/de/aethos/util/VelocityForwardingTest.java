@@ -0,0 +1,56 @@
+package de.aethos.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VelocityForwardingTest {
+
+    @TempDir
+    Path backend;
+
+    @Test
+    void writesForwardingBlock() throws IOException {
+        VelocityForwarding.configureBackend(backend, "secret", false);
+        assertEquals("""
+                proxies:
+                  velocity:
+                    enabled: true
+                    online-mode: false
+                    secret: 'secret'
+                """, Files.readString(backend.resolve("config").resolve("paper-global.yml")));
+    }
+
+    @Test
+    void updatesExistingConfiguration() throws IOException {
+        Files.createDirectories(backend.resolve("config"));
+        Files.writeString(backend.resolve("config").resolve("paper-global.yml"), """
+                chunk-loading:
+                  autoconfig-send-distance: true
+                proxies:
+                  bungee-cord:
+                    online-mode: true
+                  velocity:
+                    enabled: false
+                    online-mode: false
+                    secret: ''
+                """);
+        VelocityForwarding.configureBackend(backend, "secret", true);
+        assertEquals("""
+                chunk-loading:
+                  autoconfig-send-distance: true
+                proxies:
+                  bungee-cord:
+                    online-mode: true
+                  velocity:
+                    enabled: true
+                    online-mode: true
+                    secret: 'secret'
+                """, Files.readString(backend.resolve("config").resolve("paper-global.yml")));
+    }
+}
@@ -0,0 +1,111 @@
+package de.aethos.util;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class WorldSnapshotTest {
+
+    @TempDir
+    Path server;
+
+    @BeforeEach
+    void createServer() throws IOException {
+        Files.createDirectories(server.resolve("world").resolve("region"));
+        Files.writeString(server.resolve("world").resolve("level.dat"), "level");
+        Files.writeString(server.resolve("world").resolve("region").resolve("r.0.0.mca"), "region");
+        Files.writeString(server.resolve("world").resolve("session.lock"), "lock");
+        Files.writeString(server.resolve("server.properties"), "motd=test");
+        Files.createDirectories(server.resolve("plugins").resolve("Example"));
+        Files.writeString(server.resolve("plugins").resolve("Example").resolve("config.yml"), "a: 1");
+        Files.writeString(server.resolve("paper.jar"), "paper");
+    }
+
+    @Test
+    void capturesWorldsConfigurationAndIncludes() throws IOException {
+        final WorldSnapshot snapshot = snapshot();
+        assertFalse(snapshot.exists());
+        snapshot.create(List.of("plugins/Example"));
+        assertTrue(snapshot.exists());
+        final Path files = store().resolve("files");
+        assertEquals("level", Files.readString(files.resolve("world").resolve("level.dat")));
+        assertEquals("region", Files.readString(files.resolve("world").resolve("region").resolve("r.0.0.mca")));
+        assertEquals("motd=test", Files.readString(files.resolve("server.properties")));
+        assertEquals("a: 1", Files.readString(files.resolve("plugins").resolve("Example").resolve("config.yml")));
+        assertFalse(Files.exists(files.resolve("world").resolve("session.lock")));
+        assertFalse(Files.exists(files.resolve("paper.jar")));
+    }
+
+    @Test
+    void restoresOnlyWhatChanged() throws IOException {
+        snapshot().create(List.of());
+        final Path level = server.resolve("world").resolve("level.dat");
+        final Path region = server.resolve("world").resolve("region").resolve("r.0.0.mca");
+        final Object levelKey = fileKey(level);
+        Files.writeString(region, "region after the test run");
+        Files.delete(server.resolve("server.properties"));
+        Files.writeString(server.resolve("world").resolve("region").resolve("r.1.0.mca"), "new region");
+        Files.writeString(server.resolve("paper.jar"), "other paper");
+
+        snapshot().restore();
+        assertEquals("region", Files.readString(region));
+        assertEquals("motd=test", Files.readString(server.resolve("server.properties")));
+        assertFalse(Files.exists(server.resolve("world").resolve("region").resolve("r.1.0.mca")));
+        assertEquals("level", Files.readString(level));
+        // unchanged files are skipped, not rewritten through a temp file
+        assertEquals(levelKey, fileKey(level));
+        // the lock and anything outside the captured roots are left alone
+        assertTrue(Files.exists(server.resolve("world").resolve("session.lock")));
+        assertEquals("other paper", Files.readString(server.resolve("paper.jar")));
+    }
+
+    @Test
+    void restoreKeepsServerFilesApartFromStore() throws IOException {
+        snapshot().create(List.of());
+        Files.writeString(server.resolve("world").resolve("level.dat"), "changed level");
+        snapshot().restore();
+        final Path level = server.resolve("world").resolve("level.dat");
+        assertEquals("level", Files.readString(level));
+        assertFalse(Files.isSameFile(level, store().resolve("files").resolve("world").resolve("level.dat")));
+    }
+
+    @Test
+    void nextSnapshotLinksUnchangedFiles() throws IOException {
+        snapshot().create(List.of());
+        final Path files = store().resolve("files");
+        final Object level = fileKey(files.resolve("world").resolve("level.dat"));
+        final Object region = fileKey(files.resolve("world").resolve("region").resolve("r.0.0.mca"));
+        assumeTrue(level != null, "the file system has no file keys");
+        Files.writeString(server.resolve("world").resolve("region").resolve("r.0.0.mca"), "region after the test run");
+
+        snapshot().create(List.of());
+        assertEquals(level, fileKey(files.resolve("world").resolve("level.dat")));
+        assertNotEquals(region, fileKey(files.resolve("world").resolve("region").resolve("r.0.0.mca")));
+        assertEquals("region after the test run", Files.readString(files.resolve("world").resolve("region").resolve("r.0.0.mca")));
+    }
+
+    private WorldSnapshot snapshot() {
+        return new WorldSnapshot(server, "base", new SystemStreamLog());
+    }
+
+    private Path store() {
+        return server.resolve(".aethos").resolve("snapshots").resolve("base");
+    }
+
+    private static Object fileKey(Path file) throws IOException {
+        return Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+    }
+}